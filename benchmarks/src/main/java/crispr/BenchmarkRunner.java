@@ -0,0 +1,24 @@
+package crispr;
+
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Runs JMH with the given options and saves results as JSON, so runs can be compared.
+ * Unless -rf is given, results go to jmh-result-yyyyMMdd-HHmmss.json in the working directory.
+ * */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws Exception {
+        if (!Arrays.asList(args).contains("-rf")) {
+            String resultFile = "jmh-result-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".json";
+            String[] jsonArgs = Arrays.copyOf(args, args.length + 4);
+            jsonArgs[args.length] = "-rf";
+            jsonArgs[args.length + 1] = "json";
+            jsonArgs[args.length + 2] = "-rff";
+            jsonArgs[args.length + 3] = resultFile;
+            args = jsonArgs;
+        }
+        org.openjdk.jmh.Main.main(args);
+    }
+}
@@ -0,0 +1,53 @@
+package crispr;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search of a search window pattern in the region downstream of it, as findExactRepeats does,
+ * at consecutive scan positions.
+ * */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BoyerMooreBenchmark {
+    private static final int NUM_POSITIONS = 1000;
+    private static final int GENOME_LENGTH = 1_000_000;
+
+    private DNASequence dnaSequence;
+    private BoyerMoore.Pattern pattern;
+    private int windowLength;
+    private int beginOffset;
+    private int endOffset;
+
+    @Setup
+    public void setUp() {
+        dnaSequence = new SyntheticGenome(GENOME_LENGTH, 1).getDNASequence();
+        windowLength = CRISPRArraysFinder.searchWindowLength;
+        pattern = new BoyerMoore.Pattern(windowLength);
+        beginOffset = CRISPRArraysFinder.minSpacerLength + CRISPRArraysFinder.minRepeatLength;
+        endOffset = CRISPRArraysFinder.maxSpacerLength + CRISPRArraysFinder.maxRepeatLength + windowLength + 1;
+    }
+
+    @Benchmark
+    public void searchInPlace(Blackhole blackhole) {
+        for (int i = 0; i < NUM_POSITIONS; ++i) {
+            pattern.set(dnaSequence, i, windowLength);
+            blackhole.consume(pattern.search(dnaSequence, i + beginOffset, i + endOffset));
+        }
+    }
+
+    @Benchmark
+    public void searchStrings(Blackhole blackhole) {
+        for (int i = 0; i < NUM_POSITIONS; ++i) {
+            String patternString = dnaSequence.subSequence(i, i + windowLength);
+            String text = dnaSequence.subSequence(i + beginOffset, i + endOffset);
+            blackhole.consume(BoyerMoore.search(text, patternString));
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package crispr;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extension of exact repeat candidates found at the planted arrays of a synthetic genome.
+ * extendRight and extendLeft change the array, so they run on copies; copying is part of the measured time.
+ * */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExtensionBenchmark {
+    private static final int GENOME_LENGTH = 1_000_000;
+
+    private CRISPRSearchEngine searchEngine;
+    private ColumnConsensus columnConsensus;
+    private Vector<CRISPRArray> candidates;
+
+    @Setup
+    public void setUp() {
+        SyntheticGenome genome = new SyntheticGenome(GENOME_LENGTH, 1);
+        searchEngine = genome.newSearchEngine();
+        columnConsensus = searchEngine.newColumnConsensus();
+        PatternSearcher pattern = searchEngine.newPatternSearcher();
+
+        candidates = new Vector<>();
+        for (int arrayStart : genome.getArrayStarts()) {
+            pattern.setPattern(arrayStart);
+            CRISPRArray candidate = searchEngine.findExactRepeats(arrayStart, pattern);
+            if (candidate != null) {
+                candidates.add(candidate);
+            }
+        }
+    }
+
+    @Benchmark
+    public void canExtendTo(Blackhole blackhole) {
+        for (CRISPRArray candidate : candidates) {
+            blackhole.consume(searchEngine.canExtendTo(candidate, candidate.getRepeatLength(), columnConsensus));
+        }
+    }
+
+    @Benchmark
+    public void extendRight(Blackhole blackhole) {
+        for (CRISPRArray candidate : candidates) {
+            CRISPRArray crisprArray = new CRISPRArray(candidate);
+            searchEngine.extendRight(crisprArray, columnConsensus);
+            blackhole.consume(crisprArray);
+        }
+    }
+
+    @Benchmark
+    public void extendLeft(Blackhole blackhole) {
+        for (CRISPRArray candidate : candidates) {
+            CRISPRArray crisprArray = new CRISPRArray(candidate);
+            searchEngine.extendLeft(crisprArray, columnConsensus);
+            blackhole.consume(crisprArray);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package crispr;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full scan of synthetic genomes, or of the first record of a fasta file given with -p fastaFile=path,
+ * with every search engine. A new engine is made for every scan, so KMER_INDEX and SUFFIX_ARRAY time
+ * includes building the index.
+ * SearchMethodEquivalenceTest checks that the engines find the same CRISPR arrays.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class FindCRISPRsBenchmark {
+
+    // ignored if fastaFile is given
+    @Param({"1000000", "10000000", "100000000"})
+    public int genomeLength;
+
+    @Param({"BOYER_MOORE", "KMER_INDEX", "SUFFIX_ARRAY"})
+    public CRISPRSearchEngine.SearchMethod searchMethod;
+
+    @Param({""})
+    public String fastaFile;
+
+    private DNASequence dnaSequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (fastaFile.isEmpty()) {
+            dnaSequence = new SyntheticGenome(genomeLength, 1).getDNASequence();
+        } else {
+            dnaSequence = DNASequence.build(fastaFile);
+            if (dnaSequence == null) {
+                throw new IllegalArgumentException("Not a correct fasta file: " + fastaFile);
+            }
+        }
+    }
+
+    @Benchmark
+    public Vector<CRISPRArray> findCRISPRs() {
+        CRISPRSearchEngine searchEngine = SyntheticGenome.newSearchEngine(dnaSequence);
+        searchEngine.setSearchMethod(searchMethod);
+        return searchEngine.findCRISPRs();
+    }
+}
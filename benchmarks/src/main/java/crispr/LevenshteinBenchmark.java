@@ -0,0 +1,60 @@
+package crispr;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Levenshtein distance of spacer and repeat sized sequence pairs.
+ * */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LevenshteinBenchmark {
+    private static final int NUM_PAIRS = 256;
+    private static final double SPACER_TO_SPACER_MAX_SIMILARITY = 0.62;
+
+    @Param({"30", "48"})
+    public int length;
+
+    private String[] first;
+    private String[] second;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(1);
+        first = new String[NUM_PAIRS];
+        second = new String[NUM_PAIRS];
+        for (int i = 0; i < NUM_PAIRS; ++i) {
+            first[i] = randomSequence(random, length - 2 + random.nextInt(5));
+            second[i] = randomSequence(random, length - 2 + random.nextInt(5));
+        }
+    }
+
+    private static String randomSequence(Random random, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; ++i) {
+            sb.append("ACGT".charAt(random.nextInt(4)));
+        }
+        return sb.toString();
+    }
+
+    @Benchmark
+    public void distance(Blackhole blackhole) {
+        for (int i = 0; i < NUM_PAIRS; ++i) {
+            blackhole.consume(LevenshteinDistance.getLevenshteinDistance(first[i], second[i]));
+        }
+    }
+
+    @Benchmark
+    public void areSimilar(Blackhole blackhole) {
+        for (int i = 0; i < NUM_PAIRS; ++i) {
+            blackhole.consume(CRISPRArray.areSimilar(first[i], second[i], SPACER_TO_SPACER_MAX_SIMILARITY));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package crispr;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rescan of a random genome after a few random edits, against a full scan of the edited genome.
+ * The genome is planted with degenerate arrays every few kilobases: repeats with point mutations, a varying number
+ * of copies and often a partial copy after the last spacer, so neighbouring candidates differ in their repeats.
+ * Edits fall mostly just after the arrays and often copy nearby sequence, so they add, remove and merge repeats.
+ * RescanEditsTest checks that rescanEdits finds the same CRISPR arrays as findCRISPRs on such edits.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RescanEditsBenchmark {
+    private static final int GENOME_LENGTH = 300_000;
+    private static final char[] NUCLEOTIDES = {'A', 'C', 'G', 'T'};
+
+    @Param({"1", "4", "16"})
+    public int numEdits;
+
+    private DNASequence dnaSequence;
+    private Vector<CRISPRArray> previousArrays;
+    private Vector<SequenceEdit> edits;
+    private DNASequence editedSequence;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(numEdits);
+        dnaSequence = newGenome(random);
+        previousArrays = SyntheticGenome.newSearchEngine(dnaSequence).findCRISPRs();
+        edit(random);
+    }
+
+    private static DNASequence newGenome(Random random) {
+        PackedSequence sequence = new PackedSequence(GENOME_LENGTH);
+        while (sequence.length() < GENOME_LENGTH) {
+            appendRandom(sequence, random, 500 + random.nextInt(4000));
+            char[] repeat = new char[24 + random.nextInt(14)];
+            for (int i = 0; i < repeat.length; ++i) {
+                repeat[i] = NUCLEOTIDES[random.nextInt(4)];
+            }
+            int numRepeats = 2 + random.nextInt(6);
+            for (int r = 0; r < numRepeats; ++r) {
+                appendMutated(sequence, random, repeat, repeat.length, (random.nextInt(4) == 0) ? 1 + random.nextInt(3) : 0);
+                if (r < numRepeats - 1) {
+                    appendRandom(sequence, random, 25 + random.nextInt(25));
+                }
+            }
+            if (random.nextBoolean()) {
+                appendRandom(sequence, random, 25 + random.nextInt(25));
+                appendMutated(sequence, random, repeat, 8 + random.nextInt(repeat.length - 8), random.nextInt(3));
+            }
+        }
+        sequence.trim();
+        return new DNASequence(">degenerate arrays", sequence);
+    }
+
+    private static void appendRandom(PackedSequence sequence, Random random, int length) {
+        for (int i = 0; i < length; ++i) {
+            sequence.append(NUCLEOTIDES[random.nextInt(4)]);
+        }
+    }
+
+    /**
+     * Appends the first length nucleotides of the repeat with numMutations random substitutions.
+     * */
+    private static void appendMutated(PackedSequence sequence, Random random, char[] repeat, int length, int numMutations) {
+        char[] copy = Arrays.copyOf(repeat, length);
+        for (int i = 0; i < numMutations; ++i) {
+            copy[random.nextInt(length)] = NUCLEOTIDES[random.nextInt(4)];
+        }
+        for (char nucleotide : copy) {
+            sequence.append(nucleotide);
+        }
+    }
+
+    /**
+     * Makes numEdits random edits of the genome, which do not overlap.
+     * */
+    private void edit(Random random) {
+        int length = dnaSequence.length();
+        int[] beginIndices = new int[numEdits];
+        for (int i = 0; i < numEdits; ++i) {
+            beginIndices[i] = (random.nextInt(4) > 0 && !previousArrays.isEmpty())
+                    ? previousArrays.get(random.nextInt(previousArrays.size())).getEndIndex() - 60 + random.nextInt(400)
+                    : random.nextInt(length);
+            beginIndices[i] = Math.max(0, Math.min(length, beginIndices[i]));
+        }
+        Arrays.sort(beginIndices);
+
+        edits = new Vector<>();
+        PackedSequence sequence = new PackedSequence(length + numEdits * 40);
+        int index = 0;
+        for (int beginIndex : beginIndices) {
+            if (beginIndex < index) {
+                continue;
+            }
+            int endIndex = Math.min(length, beginIndex + (random.nextBoolean() ? 0 : random.nextInt(40)));
+            int replacementLength = random.nextInt(40);
+            for (; index < beginIndex; ++index) {
+                sequence.append(dnaSequence.getNucleotide(index));
+            }
+            // a copy of the sequence shortly before the edit, or random nucleotides
+            int copyBegin = random.nextBoolean() ? Math.max(0, beginIndex - 40 - random.nextInt(100)) : -1;
+            for (int i = 0; i < replacementLength; ++i) {
+                sequence.append((copyBegin >= 0) ? dnaSequence.getNucleotide(copyBegin + i) : NUCLEOTIDES[random.nextInt(4)]);
+            }
+            edits.add(new SequenceEdit(beginIndex, endIndex, replacementLength));
+            index = endIndex;
+        }
+        for (; index < length; ++index) {
+            sequence.append(dnaSequence.getNucleotide(index));
+        }
+        sequence.trim();
+        editedSequence = new DNASequence(">edited", sequence);
+    }
+
+    @Benchmark
+    public Vector<CRISPRArray> rescanEdits() {
+        return SyntheticGenome.newSearchEngine(editedSequence).rescanEdits(previousArrays, edits);
+    }
+
+    @Benchmark
+    public Vector<CRISPRArray> findCRISPRs() {
+        return SyntheticGenome.newSearchEngine(editedSequence).findCRISPRs();
+    }
+}
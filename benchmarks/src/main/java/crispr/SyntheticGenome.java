@@ -0,0 +1,86 @@
+package crispr;
+
+import java.util.Random;
+
+/**
+ * Random genome with CRISPR arrays planted at regular intervals, used as benchmark input.
+ * */
+public class SyntheticGenome {
+    private static final char[] NUCLEOTIDES = {'A', 'C', 'G', 'T'};
+    // one array is planted every ARRAY_INTERVAL bases
+    private static final int ARRAY_INTERVAL = 50_000;
+
+    private final DNASequence dnaSequence;
+    private final int[] arrayStarts;
+
+    /**
+     * @param length number of bases
+     * @param seed seed of the random generator, the same seed gives the same genome
+     * */
+    public SyntheticGenome(int length, long seed) {
+        Random random = new Random(seed);
+        PackedSequence sequence = new PackedSequence(length);
+        arrayStarts = new int[length / ARRAY_INTERVAL];
+
+        int numArrays = 0;
+        while (sequence.length() < length) {
+            int nextArray = (numArrays + 1) * ARRAY_INTERVAL - ARRAY_INTERVAL / 2;
+            if (numArrays < arrayStarts.length && sequence.length() == nextArray) {
+                arrayStarts[numArrays++] = nextArray;
+                plantArray(sequence, random, length);
+            } else {
+                sequence.append(NUCLEOTIDES[random.nextInt(4)]);
+            }
+        }
+        sequence.trim();
+        dnaSequence = new DNASequence(">synthetic genome " + length + " seed " + seed, sequence);
+    }
+
+    /**
+     * Appends 4 to 9 copies of a random 28-36 bp repeat separated by random 30-42 bp spacers.
+     * */
+    private static void plantArray(PackedSequence sequence, Random random, int length) {
+        char[] repeat = new char[28 + random.nextInt(9)];
+        for (int i = 0; i < repeat.length; ++i) {
+            repeat[i] = NUCLEOTIDES[random.nextInt(4)];
+        }
+
+        int numRepeats = 4 + random.nextInt(6);
+        for (int r = 0; r < numRepeats && sequence.length() < length; ++r) {
+            for (int i = 0; i < repeat.length && sequence.length() < length; ++i) {
+                sequence.append(repeat[i]);
+            }
+            int spacerLength = 30 + random.nextInt(13);
+            for (int i = 0; i < spacerLength && sequence.length() < length; ++i) {
+                sequence.append(NUCLEOTIDES[random.nextInt(4)]);
+            }
+        }
+    }
+
+    public DNASequence getDNASequence() {
+        return dnaSequence;
+    }
+
+    /**
+     * @return start indices of the planted arrays
+     * */
+    public int[] getArrayStarts() {
+        return arrayStarts;
+    }
+
+    /**
+     * @return a search engine with the default parameters of CRISPRArraysFinder
+     * */
+    public CRISPRSearchEngine newSearchEngine() {
+        return newSearchEngine(dnaSequence);
+    }
+
+    /**
+     * @return a search engine of any sequence with the default parameters of CRISPRArraysFinder
+     * */
+    public static CRISPRSearchEngine newSearchEngine(DNASequence dnaSequence) {
+        return new CRISPRSearchEngine(dnaSequence, CRISPRArraysFinder.minNumberRepeats,
+                CRISPRArraysFinder.minRepeatLength, CRISPRArraysFinder.maxRepeatLength, CRISPRArraysFinder.searchWindowLength,
+                CRISPRArraysFinder.minSpacerLength, CRISPRArraysFinder.maxSpacerLength);
+    }
+}
@@ -0,0 +1,82 @@
+package crispr;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scalar and Vector API kernels side by side: search window searches at consecutive scan positions
+ * and extension of the exact repeat candidates found at the planted arrays of a synthetic genome.
+ * The fork adds the incubator module, without it the vector parameter measures the scalar fallback.
+ * */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class VectorKernelsBenchmark {
+    private static final int NUM_POSITIONS = 1000;
+    private static final int GENOME_LENGTH = 1_000_000;
+
+    @Param({"scalar", "vector"})
+    public String kernels;
+
+    private CRISPRSearchEngine searchEngine;
+    private PatternSearcher pattern;
+    private ColumnConsensus columnConsensus;
+    private Vector<CRISPRArray> candidates;
+    private int beginOffset;
+    private int endOffset;
+
+    @Setup
+    public void setUp() {
+        if (kernels.equals("vector") && !VectorKernels.isAvailable()) {
+            throw new IllegalStateException("Vector API is not available");
+        }
+        SyntheticGenome genome = new SyntheticGenome(GENOME_LENGTH, 1);
+        searchEngine = genome.newSearchEngine();
+        searchEngine.setUseVectorKernels(kernels.equals("vector"));
+        pattern = searchEngine.newPatternSearcher();
+        columnConsensus = searchEngine.newColumnConsensus();
+        beginOffset = CRISPRArraysFinder.minSpacerLength + CRISPRArraysFinder.minRepeatLength;
+        endOffset = CRISPRArraysFinder.maxSpacerLength + CRISPRArraysFinder.maxRepeatLength + pattern.patternLength() + 1;
+
+        candidates = new Vector<>();
+        for (int arrayStart : genome.getArrayStarts()) {
+            pattern.setPattern(arrayStart);
+            CRISPRArray candidate = searchEngine.findExactRepeats(arrayStart, pattern);
+            if (candidate != null) {
+                candidates.add(candidate);
+            }
+        }
+    }
+
+    @Benchmark
+    public void search(Blackhole blackhole) {
+        for (int i = 0; i < NUM_POSITIONS; ++i) {
+            pattern.setPattern(i);
+            blackhole.consume(pattern.search(i + beginOffset, i + endOffset));
+        }
+    }
+
+    @Benchmark
+    public void extendRight(Blackhole blackhole) {
+        for (CRISPRArray candidate : candidates) {
+            CRISPRArray crisprArray = new CRISPRArray(candidate);
+            searchEngine.extendRight(crisprArray, columnConsensus);
+            blackhole.consume(crisprArray);
+        }
+    }
+
+    @Benchmark
+    public void extendLeft(Blackhole blackhole) {
+        for (CRISPRArray candidate : candidates) {
+            CRISPRArray crisprArray = new CRISPRArray(candidate);
+            searchEngine.extendLeft(crisprArray, columnConsensus);
+            blackhole.consume(crisprArray);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package crispr;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Random genome planted with degenerate arrays every few kilobases: repeats with point mutations, a varying number
+ * of copies and often a partial copy after the last spacer, so neighbouring candidates differ in their repeats.
+ * */
+class DegenerateGenome {
+    static final char[] NUCLEOTIDES = {'A', 'C', 'G', 'T'};
+
+    private DegenerateGenome() {
+    }
+
+    static DNASequence newGenome(Random random, int length) {
+        PackedSequence sequence = new PackedSequence(length);
+        while (sequence.length() < length) {
+            appendRandom(sequence, random, 500 + random.nextInt(4000));
+            char[] repeat = new char[24 + random.nextInt(14)];
+            for (int i = 0; i < repeat.length; ++i) {
+                repeat[i] = NUCLEOTIDES[random.nextInt(4)];
+            }
+            int numRepeats = 2 + random.nextInt(6);
+            for (int r = 0; r < numRepeats; ++r) {
+                appendMutated(sequence, random, repeat, repeat.length, (random.nextInt(4) == 0) ? 1 + random.nextInt(3) : 0);
+                if (r < numRepeats - 1) {
+                    appendRandom(sequence, random, 25 + random.nextInt(25));
+                }
+            }
+            if (random.nextBoolean()) {
+                appendRandom(sequence, random, 25 + random.nextInt(25));
+                appendMutated(sequence, random, repeat, 8 + random.nextInt(repeat.length - 8), random.nextInt(3));
+            }
+        }
+        sequence.trim();
+        return new DNASequence(">degenerate arrays", sequence);
+    }
+
+    static void appendRandom(PackedSequence sequence, Random random, int length) {
+        for (int i = 0; i < length; ++i) {
+            sequence.append(NUCLEOTIDES[random.nextInt(4)]);
+        }
+    }
+
+    /**
+     * Appends the first length nucleotides of the repeat with numMutations random substitutions.
+     * */
+    private static void appendMutated(PackedSequence sequence, Random random, char[] repeat, int length, int numMutations) {
+        char[] copy = Arrays.copyOf(repeat, length);
+        for (int i = 0; i < numMutations; ++i) {
+            copy[random.nextInt(length)] = NUCLEOTIDES[random.nextInt(4)];
+        }
+        for (char nucleotide : copy) {
+            sequence.append(nucleotide);
+        }
+    }
+
+    /**
+     * @return a search engine of the sequence with the default parameters of CRISPRArraysFinder
+     * */
+    static CRISPRSearchEngine newSearchEngine(DNASequence dnaSequence) {
+        return new CRISPRSearchEngine(dnaSequence, CRISPRArraysFinder.minNumberRepeats,
+                CRISPRArraysFinder.minRepeatLength, CRISPRArraysFinder.maxRepeatLength, CRISPRArraysFinder.searchWindowLength,
+                CRISPRArraysFinder.minSpacerLength, CRISPRArraysFinder.maxSpacerLength);
+    }
+}
@@ -0,0 +1,101 @@
+package crispr;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Vector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * rescanEdits finds the same CRISPR arrays as a full scan of the edited sequence.
+ * Edits fall mostly just after the arrays and often copy nearby sequence, so they add, remove and merge repeats.
+ * */
+class RescanEditsTest {
+    private static final int GENOME_LENGTH = 300_000;
+    private static final int NUM_CHECKS = 100;
+
+    private DNASequence dnaSequence;
+    private Vector<CRISPRArray> previousArrays;
+    private Vector<SequenceEdit> edits;
+    private DNASequence editedSequence;
+
+    @Test
+    void rescanOfOneEditFindsTheArraysOfAFullScan() {
+        checkRescanEdits(1);
+    }
+
+    @Test
+    void rescanOfFourEditsFindsTheArraysOfAFullScan() {
+        checkRescanEdits(4);
+    }
+
+    @Test
+    void rescanOfSixteenEditsFindsTheArraysOfAFullScan() {
+        checkRescanEdits(16);
+    }
+
+    private void checkRescanEdits(int numEdits) {
+        Random random = new Random(numEdits);
+        dnaSequence = DegenerateGenome.newGenome(random, GENOME_LENGTH);
+        previousArrays = DegenerateGenome.newSearchEngine(dnaSequence).findCRISPRs();
+        for (int check = 0; check < NUM_CHECKS; ++check) {
+            edit(random, numEdits);
+            assertEquals(DegenerateGenome.newSearchEngine(editedSequence).findCRISPRs().toString(),
+                    DegenerateGenome.newSearchEngine(editedSequence).rescanEdits(previousArrays, edits).toString(),
+                    "rescanEdits finds other CRISPR arrays than findCRISPRs after edits " + toString(edits));
+        }
+    }
+
+    /**
+     * Makes numEdits random edits of the genome, which do not overlap.
+     * */
+    private void edit(Random random, int numEdits) {
+        int length = dnaSequence.length();
+        int[] beginIndices = new int[numEdits];
+        for (int i = 0; i < numEdits; ++i) {
+            beginIndices[i] = (random.nextInt(4) > 0 && !previousArrays.isEmpty())
+                    ? previousArrays.get(random.nextInt(previousArrays.size())).getEndIndex() - 60 + random.nextInt(400)
+                    : random.nextInt(length);
+            beginIndices[i] = Math.max(0, Math.min(length, beginIndices[i]));
+        }
+        Arrays.sort(beginIndices);
+
+        edits = new Vector<>();
+        PackedSequence sequence = new PackedSequence(length + numEdits * 40);
+        int index = 0;
+        for (int beginIndex : beginIndices) {
+            if (beginIndex < index) {
+                continue;
+            }
+            int endIndex = Math.min(length, beginIndex + (random.nextBoolean() ? 0 : random.nextInt(40)));
+            int replacementLength = random.nextInt(40);
+            for (; index < beginIndex; ++index) {
+                sequence.append(dnaSequence.getNucleotide(index));
+            }
+            // a copy of the sequence shortly before the edit, or random nucleotides
+            int copyBegin = random.nextBoolean() ? Math.max(0, beginIndex - 40 - random.nextInt(100)) : -1;
+            for (int i = 0; i < replacementLength; ++i) {
+                sequence.append((copyBegin >= 0) ? dnaSequence.getNucleotide(copyBegin + i)
+                        : DegenerateGenome.NUCLEOTIDES[random.nextInt(4)]);
+            }
+            edits.add(new SequenceEdit(beginIndex, endIndex, replacementLength));
+            index = endIndex;
+        }
+        for (; index < length; ++index) {
+            sequence.append(dnaSequence.getNucleotide(index));
+        }
+        sequence.trim();
+        editedSequence = new DNASequence(">edited", sequence);
+    }
+
+    private static String toString(Vector<SequenceEdit> edits) {
+        StringBuilder result = new StringBuilder();
+        for (SequenceEdit edit : edits) {
+            result.append(edit.getBeginIndex()).append('-').append(edit.getEndIndex())
+                    .append(':').append(edit.getReplacementLength()).append(' ');
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,44 @@
+package crispr;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Every search method finds the same CRISPR arrays as Boyer-Moore.
+ * */
+class SearchMethodEquivalenceTest {
+    private static final int GENOME_LENGTH = 300_000;
+    private static final int NUM_GENOMES = 4;
+
+    @Test
+    void searchMethodsFindTheArraysOfBoyerMoore() {
+        checkSearchMethods(Double.NaN);
+    }
+
+    @Test
+    void searchMethodsFindTheArraysOfBoyerMooreWithMask() {
+        checkSearchMethods(LowComplexityMask.DEFAULT_THRESHOLD);
+    }
+
+    private static void checkSearchMethods(double maskThreshold) {
+        for (int seed = 0; seed < NUM_GENOMES; ++seed) {
+            DNASequence dnaSequence = DegenerateGenome.newGenome(new Random(seed), GENOME_LENGTH);
+            String boyerMoore = findCRISPRs(dnaSequence, CRISPRSearchEngine.SearchMethod.BOYER_MOORE, maskThreshold);
+            for (CRISPRSearchEngine.SearchMethod searchMethod : CRISPRSearchEngine.SearchMethod.values()) {
+                assertEquals(boyerMoore, findCRISPRs(dnaSequence, searchMethod, maskThreshold),
+                        searchMethod + " finds other CRISPR arrays than BOYER_MOORE in genome " + seed);
+            }
+        }
+    }
+
+    private static String findCRISPRs(DNASequence dnaSequence, CRISPRSearchEngine.SearchMethod searchMethod,
+                                      double maskThreshold) {
+        CRISPRSearchEngine searchEngine = DegenerateGenome.newSearchEngine(dnaSequence);
+        searchEngine.setSearchMethod(searchMethod);
+        searchEngine.setMaskThreshold(maskThreshold);
+        return searchEngine.findCRISPRs().toString();
+    }
+}
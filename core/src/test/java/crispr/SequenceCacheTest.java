@@ -0,0 +1,98 @@
+package crispr;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.Vector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Records read from the cache equal the parsed ones, packed words, runs of other characters and headers alike.
+ * */
+class SequenceCacheTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void cachedRecordsEqualParsedRecords() throws IOException {
+        Random random = new Random(1);
+        Path fastaFile = directory.resolve("records.fa");
+        StringBuilder fasta = new StringBuilder();
+        for (int record = 0; record < 3; ++record) {
+            fasta.append(">record ").append(record).append('\n');
+            for (int i = 0; i < 50_000; ++i) {
+                // runs of N and IUPAC codes between the nucleotides
+                fasta.append((random.nextInt(1000) == 0) ? "NNNNNRY" : DegenerateGenome.NUCLEOTIDES[random.nextInt(4)]);
+                if (i % 60 == 59) {
+                    fasta.append('\n');
+                }
+            }
+            fasta.append('\n');
+        }
+        Files.writeString(fastaFile, fasta);
+
+        SequenceCache cache = new SequenceCache(directory.resolve("cache"), SequenceCache.DEFAULT_MAX_BYTES);
+        Vector<DNASequence> parsedRecords = readRecords(fastaFile, cache);
+        Vector<DNASequence> cachedRecords = cache.get(fastaFile);
+        assertNotNull(cachedRecords);
+        assertEquals(parsedRecords.size(), cachedRecords.size());
+        for (int i = 0; i < parsedRecords.size(); ++i) {
+            assertRecordEquals(parsedRecords.get(i), cachedRecords.get(i));
+        }
+    }
+
+    /**
+     * Packed words of this record take more than one segment of LongArray, which are mapped one by one.
+     * */
+    @Test
+    void longRecordIsMappedInSegments() throws IOException {
+        long length = 3L * LongArray.OFF_HEAP_THRESHOLD * 32 / 2 + 12345;
+        PackedSequence sequence = new PackedSequence(LongArray.OFF_HEAP_THRESHOLD);
+        for (long i = 0; i < length; ++i) {
+            sequence.append((i % 100_000_007 < 5) ? 'N' : DegenerateGenome.NUCLEOTIDES[(int) ((i * 0x9E3779B97F4A7C15L) >>> 62)]);
+        }
+        sequence.trim();
+        DNASequence dnaSequence = new DNASequence(">long record", sequence);
+        Path fastaFile = directory.resolve("long.fa");
+        Files.writeString(fastaFile, ">long record\n");
+
+        SequenceCache cache = new SequenceCache(directory.resolve("cache"), Long.MAX_VALUE);
+        assertNull(cache.get(fastaFile));
+        cache.putSequence(dnaSequence, sequence);
+        Vector<DNASequence> records = new Vector<>();
+        records.add(dnaSequence);
+        cache.putListing(fastaFile, records);
+        Vector<DNASequence> cachedRecords = cache.get(fastaFile);
+        assertNotNull(cachedRecords);
+        assertRecordEquals(dnaSequence, cachedRecords.get(0));
+    }
+
+    private static Vector<DNASequence> readRecords(Path fastaFile, SequenceCache cache) throws IOException {
+        Vector<DNASequence> records = new Vector<>();
+        try (FastaReader reader = new FastaReader(fastaFile.toString())) {
+            reader.setCache(cache);
+            for (DNASequence dnaSequence = reader.next(); dnaSequence != null; dnaSequence = reader.next()) {
+                records.add(dnaSequence);
+            }
+        }
+        return records;
+    }
+
+    private static void assertRecordEquals(DNASequence expected, DNASequence actual) {
+        assertEquals(expected.getHeader(), actual.getHeader());
+        assertEquals(expected.length(), actual.length());
+        assertEquals(expected.getContentHash(), actual.getContentHash());
+        int step = Math.max(1, expected.length() / 1_000_000);
+        for (int i = 0; i < expected.length(); i += step) {
+            assertEquals(expected.getNucleotide(i), actual.getNucleotide(i), "nucleotide " + i);
+        }
+        assertEquals(expected.getNucleotide(expected.length() - 1), actual.getNucleotide(actual.length() - 1));
+    }
+}
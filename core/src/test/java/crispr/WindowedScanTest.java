@@ -0,0 +1,55 @@
+package crispr;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.Vector;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * A scan in windows finds the same CRISPR arrays as a scan of the whole sequence,
+ * arrays longer than the overlap of two windows included.
+ * */
+class WindowedScanTest {
+    private static final int GENOME_LENGTH = 400_000;
+    private static final int MAX_WINDOW_LENGTH = 40_000;
+
+    @Test
+    void windowedScanFindsTheArraysOfAWholeScan() {
+        for (int seed = 0; seed < 4; ++seed) {
+            DNASequence dnaSequence = newGenome(new Random(seed));
+            String wholeScan = DegenerateGenome.newSearchEngine(dnaSequence).findCRISPRs().toString();
+            for (int numThreads : new int[]{1, 4}) {
+                CRISPRSearchEngine searchEngine = DegenerateGenome.newSearchEngine(dnaSequence);
+                searchEngine.setMaxWindowLength(MAX_WINDOW_LENGTH);
+                Vector<CRISPRArray> crisprArrays = new Vector<>();
+                searchEngine.findCRISPRs(numThreads, crisprArrays::add);
+                assertEquals(wholeScan, crisprArrays.toString(), "genome " + seed + " on " + numThreads + " threads");
+            }
+        }
+    }
+
+    /**
+     * @return degenerate genome with long arrays, of up to 450 repeats, longer than the overlap of two windows but not than a window
+     * */
+    private static DNASequence newGenome(Random random) {
+        PackedSequence sequence = new PackedSequence(GENOME_LENGTH);
+        while (sequence.length() < GENOME_LENGTH) {
+            DegenerateGenome.appendRandom(sequence, random, 1000 + random.nextInt(20_000));
+            char[] repeat = new char[24 + random.nextInt(14)];
+            for (int i = 0; i < repeat.length; ++i) {
+                repeat[i] = DegenerateGenome.NUCLEOTIDES[random.nextInt(4)];
+            }
+            int numRepeats = 2 + random.nextInt(450);
+            for (int r = 0; r < numRepeats; ++r) {
+                for (char nucleotide : repeat) {
+                    sequence.append(nucleotide);
+                }
+                DegenerateGenome.appendRandom(sequence, random, 30 + random.nextInt(10));
+            }
+        }
+        sequence.trim();
+        return new DNASequence(">long arrays", sequence);
+    }
+}
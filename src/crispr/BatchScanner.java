@@ -0,0 +1,233 @@
+package crispr;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Scans many fasta files in one JVM, so JVM startup and JIT warm-up are paid once for the whole batch.
+ * Files are scanned in parallel on a fixed pool of threads, one file per thread.
+ * Arrays of each file are written to its own output file, and a summary with per-file timings is written to SUMMARY_FILE.
+ * */
+public class BatchScanner {
+    public static final String SUMMARY_FILE = "summary.tsv";
+    private static final String[] FASTA_EXTENSIONS = {".fa", ".fasta", ".fna", ".ffn", ".fas", ".seq"};
+    // FastaReader decompresses gzip and BGZF input, so fasta files may have one of these after the fasta extension
+    private static final String[] COMPRESSED_EXTENSIONS = {".gz", ".bgz"};
+
+    private final Function<DNASequence, CRISPRSearchEngine> newSearchEngine;
+    private final CRISPRArrayWriter.Format outputFormat;
+    private final Path outputDirectory;
+    private final int numThreads;
+    // null if sequences are not cached
+    private SequenceCache sequenceCache;
+
+    /**
+     * Result of scanning one file.
+     * */
+    private static class FileResult {
+        Path inputFile;
+        Path outputFile;
+        int numRecords;
+        long numNucleotides;
+        int numCRISPRs;
+        long readTimeNanos;
+        long totalTimeNanos;
+        String error;
+    }
+
+    /**
+     * @param newSearchEngine creates the search engine for a sequence
+     * @param outputFormat format of the per-file outputs
+     * @param outputDirectory directory receiving the per-file outputs and the summary
+     * @param numThreads number of files scanned at the same time
+     * */
+    public BatchScanner(Function<DNASequence, CRISPRSearchEngine> newSearchEngine, CRISPRArrayWriter.Format outputFormat,
+                        Path outputDirectory, int numThreads) {
+        this.newSearchEngine = newSearchEngine;
+        this.outputFormat = outputFormat;
+        this.outputDirectory = outputDirectory;
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Makes files load their sequences from the cache, or cache them when they are parsed.
+     * */
+    public void setSequenceCache(SequenceCache sequenceCache) {
+        this.sequenceCache = sequenceCache;
+    }
+
+    /**
+     * Lists the files of a batch.
+     * @param batch a directory, whose fasta files are taken in name order,
+     *              or a manifest with one file per line. Empty lines and lines starting with # are skipped,
+     *              relative paths are relative to the directory of the manifest.
+     * */
+    public static Vector<Path> listInputFiles(Path batch) throws IOException {
+        Vector<Path> inputFiles = new Vector<>();
+        if (Files.isDirectory(batch)) {
+            try (Stream<Path> files = Files.list(batch)) {
+                files.filter(file -> Files.isRegularFile(file) && isFastaFile(file))
+                        .sorted()
+                        .forEach(inputFiles::add);
+            }
+            return inputFiles;
+        }
+
+        Path manifestDirectory = batch.toAbsolutePath().getParent();
+        for (String line : Files.readAllLines(batch)) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            inputFiles.add(manifestDirectory.resolve(line));
+        }
+        return inputFiles;
+    }
+
+    private static boolean isFastaFile(Path file) {
+        String name = removeCompressedExtension(file.getFileName().toString());
+        return getExtensionLength(name, FASTA_EXTENSIONS) > 0;
+    }
+
+    /**
+     * Scans the files and writes the summary. A file which can not be read or scanned is reported in the summary
+     * and does not stop the batch.
+     * */
+    public void run(Vector<Path> inputFiles) throws IOException, InterruptedException, ExecutionException {
+        Files.createDirectories(outputDirectory);
+        long startTime = System.nanoTime();
+
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        Vector<Future<FileResult>> results = new Vector<>();
+        try {
+            HashSet<String> outputNames = new HashSet<>();
+            for (Path inputFile : inputFiles) {
+                Path outputFile = outputDirectory.resolve(getOutputName(inputFile, outputNames));
+                results.add(pool.submit(() -> scanFile(inputFile, outputFile)));
+            }
+
+            int numFailed = 0;
+            long numNucleotides = 0;
+            int numCRISPRs = 0;
+            try (BufferedWriter summary = Files.newBufferedWriter(outputDirectory.resolve(SUMMARY_FILE))) {
+                summary.write("file\toutput\trecords\tnucleotides\tcrisprs\tread_seconds\tscan_seconds\ttotal_seconds\tstatus\n");
+                for (Future<FileResult> future : results) {
+                    FileResult result = future.get();
+                    summary.write(formatSummaryLine(result));
+                    if (result.error != null) {
+                        ++numFailed;
+                        System.out.println(result.inputFile + ": " + result.error);
+                    } else {
+                        numNucleotides += result.numNucleotides;
+                        numCRISPRs += result.numCRISPRs;
+                        System.out.printf("%s: %d CRISPR arrays in %.3f s.%n", result.inputFile, result.numCRISPRs,
+                                result.totalTimeNanos / 1e9);
+                    }
+                }
+            }
+
+            System.out.printf("Scanned %d files (%d failed), %.1f Mb, %d CRISPR arrays in %.3f s. Summary is in %s.%n",
+                    inputFiles.size(), numFailed, numNucleotides / 1e6, numCRISPRs, (System.nanoTime() - startTime) / 1e9,
+                    outputDirectory.resolve(SUMMARY_FILE));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * @return name of the output file: name of the input file without compressed and fasta extension
+     * and with the extension of the output format, made unique among outputNames
+     * */
+    private String getOutputName(Path inputFile, HashSet<String> outputNames) {
+        String baseName = getBaseName(inputFile);
+        String outputName = baseName + CRISPRArrayWriter.getFileExtension(outputFormat);
+        for (int i = 2; !outputNames.add(outputName); i++) {
+            outputName = baseName + "_" + i + CRISPRArrayWriter.getFileExtension(outputFormat);
+        }
+        return outputName;
+    }
+
+    /**
+     * @return name of the file without compressed extension and fasta extension
+     * */
+    static String getBaseName(Path inputFile) {
+        String baseName = removeCompressedExtension(inputFile.getFileName().toString());
+        return baseName.substring(0, baseName.length() - getExtensionLength(baseName, FASTA_EXTENSIONS));
+    }
+
+    private static String removeCompressedExtension(String name) {
+        return name.substring(0, name.length() - getExtensionLength(name, COMPRESSED_EXTENSIONS));
+    }
+
+    /**
+     * @return length of the extension of name, ignoring case, among extensions, or 0 if it has none of them
+     * */
+    private static int getExtensionLength(String name, String[] extensions) {
+        String lowerCaseName = name.toLowerCase(Locale.ROOT);
+        for (String extension : extensions) {
+            if (lowerCaseName.endsWith(extension)) {
+                return extension.length();
+            }
+        }
+        return 0;
+    }
+
+    private FileResult scanFile(Path inputFile, Path outputFile) {
+        long startTime = System.nanoTime();
+        FileResult result = new FileResult();
+        result.inputFile = inputFile;
+        result.outputFile = outputFile;
+
+        try (FastaReader fastaReader = new FastaReader(inputFile.toString())) {
+            fastaReader.setCache(sequenceCache);
+            CRISPRArrayWriter writer = CRISPRArrayWriter.create(outputFormat, FileChannel.open(outputFile,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), false);
+            try {
+                DNASequence dnaSequence = fastaReader.next();
+                if (dnaSequence == null) {
+                    result.error = "Not a correct fasta file.";
+                }
+                for (; dnaSequence != null; dnaSequence = fastaReader.next()) {
+                    ++result.numRecords;
+                    result.numNucleotides += dnaSequence.totalLength();
+                    writer.beginSequence(dnaSequence);
+                    newSearchEngine.apply(dnaSequence).findCRISPRs(crisprArray -> {
+                        ++result.numCRISPRs;
+                        writer.accept(crisprArray);
+                    });
+                    writer.endSequence();
+                }
+            } finally {
+                writer.close();
+            }
+            result.readTimeNanos = fastaReader.getReadTimeNanos();
+        } catch (IOException | RuntimeException | OutOfMemoryError ex) {
+            // a malformed record, or a file too large to scan, fails only its own file;
+            // the memory of the file is freed once the scan is left
+            result.error = ex.toString();
+        }
+
+        result.totalTimeNanos = System.nanoTime() - startTime;
+        return result;
+    }
+
+    private static String formatSummaryLine(FileResult result) {
+        return String.format(Locale.ROOT, "%s\t%s\t%d\t%d\t%d\t%.3f\t%.3f\t%.3f\t%s%n", result.inputFile, result.outputFile,
+                result.numRecords, result.numNucleotides, result.numCRISPRs, result.readTimeNanos / 1e9,
+                (result.totalTimeNanos - result.readTimeNanos) / 1e9, result.totalTimeNanos / 1e9,
+                (result.error == null) ? "ok" : result.error.replace('\t', ' ').replace('\n', ' '));
+    }
+}
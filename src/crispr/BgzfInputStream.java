@@ -0,0 +1,202 @@
+package crispr;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * Reads BGZF input (blocked gzip, as written by bgzip), decompressing blocks in parallel.
+ * BGZF is a series of gzip members of at most 64 KB, each recording its compressed size in a header field,
+ * so blocks are cut out of the input without inflating them and inflated on the common fork-join pool.
+ * Blocks are read ahead a few per thread and returned in input order.
+ * */
+public class BgzfInputStream extends InputStream {
+    // gzip header up to the length of the extra field
+    private static final int HEADER_SIZE = 12;
+    // CRC32 and uncompressed size after the compressed data
+    private static final int TRAILER_SIZE = 8;
+    private static final int BLOCKS_PER_THREAD = 4;
+    // inflaters hold native memory, each pool thread keeps one
+    private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    private final InputStream input;
+    private final ArrayDeque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+    private final int maxPendingBlocks = BLOCKS_PER_THREAD * max(1, ForkJoinPool.commonPool().getParallelism());
+    private boolean isInputAtEnd;
+    private byte[] block = new byte[0];
+    private int blockPosition;
+
+    BgzfInputStream(InputStream input) {
+        this.input = input;
+    }
+
+    /**
+     * @return true if the bytes start with the header of a BGZF block
+     * */
+    static boolean isBgzfHeader(byte[] header) {
+        return header.length >= 16 && (header[0] & 0xFF) == 0x1F && (header[1] & 0xFF) == 0x8B && header[2] == 8
+                && (header[3] & 4) != 0 && getUnsignedShort(header, 10) >= 6
+                && header[12] == 'B' && header[13] == 'C' && getUnsignedShort(header, 14) == 2;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (blockPosition == block.length && !nextBlock()) {
+            return -1;
+        }
+        return block[blockPosition++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (blockPosition == block.length && !nextBlock()) {
+            return -1;
+        }
+        int numBytes = min(length, block.length - blockPosition);
+        System.arraycopy(block, blockPosition, buffer, offset, numBytes);
+        blockPosition += numBytes;
+        return numBytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Future<byte[]> pendingBlock : pendingBlocks) {
+            pendingBlock.cancel(false);
+        }
+        pendingBlocks.clear();
+        input.close();
+    }
+
+    /**
+     * Moves to the next non-empty decompressed block, reading ahead and submitting blocks to decompress.
+     * @return false at the end of the input
+     * */
+    private boolean nextBlock() throws IOException {
+        do {
+            while (!isInputAtEnd && pendingBlocks.size() < maxPendingBlocks) {
+                byte[] compressedBlock = readCompressedBlock();
+                if (compressedBlock == null) {
+                    isInputAtEnd = true;
+                } else {
+                    pendingBlocks.add(ForkJoinPool.commonPool().submit(() -> inflate(compressedBlock)));
+                }
+            }
+            Future<byte[]> pendingBlock = pendingBlocks.poll();
+            if (pendingBlock == null) {
+                return false;
+            }
+            try {
+                block = pendingBlock.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while decompressing");
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof IOException) {
+                    throw (IOException) ex.getCause();
+                }
+                throw new IOException(ex.getCause());
+            }
+            blockPosition = 0;
+        } while (block.length == 0);
+        return true;
+    }
+
+    /**
+     * Reads the next block, checking its header.
+     * @return compressed data with the gzip trailer, or null at the end of the input
+     * */
+    private byte[] readCompressedBlock() throws IOException {
+        byte[] header = input.readNBytes(HEADER_SIZE);
+        if (header.length == 0) {
+            return null;
+        }
+        if (header.length < HEADER_SIZE || (header[0] & 0xFF) != 0x1F || (header[1] & 0xFF) != 0x8B
+                || header[2] != 8 || (header[3] & 4) == 0) {
+            throw new ZipException("Not a BGZF block");
+        }
+        int extraLength = getUnsignedShort(header, 10);
+        byte[] extra = readFully(extraLength);
+
+        int blockSize = -1;
+        for (int i = 0; i + 4 <= extra.length; i += 4 + getUnsignedShort(extra, i + 2)) {
+            if (extra[i] == 'B' && extra[i + 1] == 'C' && getUnsignedShort(extra, i + 2) == 2 && i + 6 <= extra.length) {
+                blockSize = getUnsignedShort(extra, i + 4) + 1;
+            }
+        }
+        int dataSize = blockSize - HEADER_SIZE - extraLength;
+        if (blockSize < 0 || dataSize < TRAILER_SIZE) {
+            throw new ZipException("BGZF block without a correct size");
+        }
+        return readFully(dataSize);
+    }
+
+    private byte[] readFully(int length) throws IOException {
+        byte[] bytes = input.readNBytes(length);
+        if (bytes.length < length) {
+            throw new EOFException("Truncated BGZF block");
+        }
+        return bytes;
+    }
+
+    /**
+     * Inflates the compressed data of a block and checks its size and CRC32.
+     * */
+    private static byte[] inflate(byte[] compressedBlock) throws IOException {
+        int dataLength = compressedBlock.length - TRAILER_SIZE;
+        int checksum = getInt(compressedBlock, dataLength);
+        int size = getInt(compressedBlock, dataLength + 4);
+        if (size < 0 || size > (1 << 16)) {
+            throw new ZipException("BGZF block size " + size + " out of range");
+        }
+
+        byte[] block = new byte[size];
+        Inflater inflater = INFLATERS.get();
+        inflater.reset();
+        try {
+            inflater.setInput(compressedBlock, 0, dataLength);
+            int length = 0;
+            while (length < size) {
+                int numBytes = inflater.inflate(block, length, size - length);
+                if (numBytes == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += numBytes;
+            }
+            if (length != size) {
+                throw new ZipException("BGZF block is shorter than its recorded size");
+            }
+        } catch (DataFormatException ex) {
+            throw new ZipException(ex.getMessage());
+        }
+
+        CRC32 crc32 = new CRC32();
+        crc32.update(block);
+        if ((int) crc32.getValue() != checksum) {
+            throw new ZipException("BGZF block checksum mismatch");
+        }
+        return block;
+    }
+
+    private static int getUnsignedShort(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8;
+    }
+
+    private static int getInt(byte[] bytes, int offset) {
+        return getUnsignedShort(bytes, offset) | getUnsignedShort(bytes, offset + 2) << 16;
+    }
+}
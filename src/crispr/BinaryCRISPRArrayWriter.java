@@ -0,0 +1,56 @@
+package crispr;
+
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes CRISPR arrays as compact binary records. Sequence text is not copied, repeats are stored
+ * by their 0-based positions in the input record. All numbers are big-endian, as read by DataInputStream.
+ * Lengths and positions in the record are longs since version 3, records may be longer than 2^31 bases.
+ * <pre>
+ * file:     magic "CRAB", int version
+ * sequence: byte 'S', int sequence number (from 1), long sequence length, int header length, header in UTF-8
+ * array:    byte 'A', byte strand ('+' or '-'), int repeat length, int number of repeats, long position of each repeat
+ * end:      byte 'E', int number of arrays in the sequence
+ * </pre>
+ * */
+class BinaryCRISPRArrayWriter extends CRISPRArrayWriter {
+    public static final byte[] MAGIC = {'C', 'R', 'A', 'B'};
+    public static final int VERSION = 3;
+    public static final byte SEQUENCE_RECORD = 'S';
+    public static final byte ARRAY_RECORD = 'A';
+    public static final byte END_RECORD = 'E';
+
+    BinaryCRISPRArrayWriter(WritableByteChannel channel, int bufferSize, boolean flushEachArray) {
+        super(channel, bufferSize, flushEachArray);
+    }
+
+    @Override
+    protected void writeFileHeader() {
+        put(MAGIC);
+        reserve(4).putInt(VERSION);
+    }
+
+    @Override
+    protected void writeSequenceHeader() {
+        byte[] header = dnaSequence.getHeader().getBytes(StandardCharsets.UTF_8);
+        reserve(17).put(SEQUENCE_RECORD).putInt(sequenceNumber).putLong(dnaSequence.totalLength()).putInt(header.length);
+        put(header);
+    }
+
+    @Override
+    protected void writeCRISPRArray(CRISPRArray crisprArray) {
+        int numRepeats = crisprArray.getNumRepeats();
+        byte strand = (crisprArray.getStrand() == CRISPRArray.Strand.FORWARD) ? (byte) '+' : (byte) '-';
+        reserve(10).put(ARRAY_RECORD).put(strand).putInt(crisprArray.getRepeatLength()).putInt(numRepeats);
+        long sequenceOffset = crisprArray.getSequenceOffset();
+        for (int i = 0; i < numRepeats; i++) {
+            reserve(8).putLong(sequenceOffset + crisprArray.getRepeatPosition(i));
+        }
+    }
+
+    @Override
+    protected void writeSequenceFooter() {
+        reserve(5).put(END_RECORD).putInt(numCRISPRs);
+    }
+}
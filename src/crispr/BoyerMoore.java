@@ -0,0 +1,238 @@
+package crispr;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * source: https://www.geeksforgeeks.org/boyer-moore-algorithm-for-pattern-searching/
+ * */
+public class BoyerMoore {
+
+    static int NO_OF_CHARS = 256;
+
+    /**
+     * A utility function to get maximum of two integers.
+     */
+    static int max (int a, int b) { return (a > b)? a: b; }
+
+    /**
+     * The preprocessing function for Boyer Moore's bad character heuristic.
+     */
+    static void badCharHeuristic( byte []str, int size,int badchar[])
+    {
+
+        // Initialize all occurrences as -1
+        for (int i = 0; i < NO_OF_CHARS; i++)
+            badchar[i] = -1;
+
+        // Fill the actual value of last occurrence
+        // of a character (indices of table are ascii and values are index of occurrence)
+        for (int i = 0; i < size; i++)
+            badchar[str[i] & 0xFF] = i;
+    }
+
+    /**
+     * The preprocessing function for Boyer Moore's good suffix heuristic.
+     */
+    static void preprocess_strong_suffix(int []shift, int []bpos,
+                                         byte []pat, int m)
+    {
+        // m is the length of pattern
+        int i = m, j = m + 1;
+        bpos[i] = j;
+
+        while(i > 0)
+        {
+        /*if character at position i-1 is not
+        equivalent to character at j-1, then
+        continue searching to right of the
+        pattern for border */
+            while(j <= m && pat[i - 1] != pat[j - 1])
+            {
+            /* the character preceding the occurrence of t
+            in pattern P is different than the mismatching
+            character in P, we stop skipping the occurrences
+            and shift the pattern from i to j */
+                if (shift[j] == 0)
+                    shift[j] = j - i;
+
+                //Update the position of next border
+                j = bpos[j];
+            }
+        /* p[i-1] matched with p[j-1], border is found.
+        store the beginning position of border */
+            i--; j--;
+            bpos[i] = j;
+        }
+    }
+
+    /**
+     * The preprocessing function for Boyer Moore's good suffix heuristic (case 2).
+     */
+    static void process_case2(int []shift, int []bpos,
+                              byte []pat, int m)
+    {
+        int i, j;
+        j = bpos[0];
+        for(i = 0; i <= m; i++)
+        {
+        /* set the border position of the first character
+        of the pattern to all indices in array shift
+        having shift[i] = 0 */
+            if(shift[i] == 0)
+                shift[i] = j;
+
+        /* suffix becomes shorter than bpos[0],
+        use the position of next widest border
+        as value of j */
+            if (i == j)
+                j = bpos[j];
+        }
+    }
+
+    /**
+     * Searches for a pattern in given text using Boyer Moore algorithm with Good suffix rule.
+     * */
+    static int search(String textStr, String patStr)
+    {
+        byte[] text = textStr.getBytes(StandardCharsets.ISO_8859_1);
+        Pattern pattern = new Pattern(patStr.length());
+        pattern.set(patStr.getBytes(StandardCharsets.ISO_8859_1));
+        return pattern.search(text, 0, text.length);
+    }
+
+    /**
+     * Preprocessed pattern which can be searched in a DNA sequence in place, between given indices.
+     * The tables are allocated once for the maximum pattern length and reused when the pattern changes,
+     * so setting and searching a pattern allocates nothing.
+     * */
+    static class Pattern {
+        private final byte[] pat;
+        private int m;
+        private final int[] badchar = new int[NO_OF_CHARS];
+        private final int[] bpos;
+        private final int[] shift;
+
+        Pattern(int maxLength) {
+            pat = new byte[maxLength];
+            bpos = new int[maxLength + 1];
+            shift = new int[maxLength + 1];
+            Arrays.fill(badchar, -1);
+        }
+
+        int length() {
+            return m;
+        }
+
+        /**
+         * Sets the pattern to dnaSequence[beginIndex, beginIndex + length) and preprocesses it.
+         * */
+        void set(DNASequence dnaSequence, int beginIndex, int length) {
+            clearBadChar();
+            m = length;
+            for (int i = 0; i < m; i++)
+                pat[i] = dnaSequence.getNucleotideByte(beginIndex + i);
+            preprocess();
+        }
+
+        void set(byte[] str) {
+            clearBadChar();
+            m = str.length;
+            System.arraycopy(str, 0, pat, 0, m);
+            preprocess();
+        }
+
+        /**
+         * Only entries of the previous pattern's characters are set, resetting them is cheaper than the whole table.
+         * */
+        private void clearBadChar() {
+            for (int i = 0; i < m; i++)
+                badchar[pat[i] & 0xFF] = -1;
+        }
+
+        private void preprocess() {
+            for (int i = 0; i < m; i++)
+                badchar[pat[i] & 0xFF] = i;
+
+            //initialize all occurrence of shift to 0
+            for(int i = 0; i < m + 1; i++)
+                shift[i] = 0;
+
+            //do preprocessing
+            preprocess_strong_suffix(shift, bpos, pat, m);
+            process_case2(shift, bpos, pat, m);
+        }
+
+        /**
+         * Shift of the pattern after it mismatches the text at pattern index j, for searches comparing the
+         * pattern by other means than the search methods.
+         * @param nextCharacter text character right after the pattern, or -1 at the end of the searched range
+         * */
+        int getShift(int j, int nextCharacter) {
+            int badCharShift = (nextCharacter >= 0) ? m - badchar[nextCharacter] : 1;
+            return max(shift[j + 1], badCharShift);
+        }
+
+        /**
+         * Searches for the pattern in dnaSequence[beginIndex, endIndex).
+         * @return index of the first match in the sequence, or -1 if not found.
+         * */
+        int search(DNASequence dnaSequence, int beginIndex, int endIndex)
+        {
+            // s is shift of the pattern
+            // with respect to text
+            int s = beginIndex, j;
+
+            while(s <= endIndex - m)
+            {
+                j = m - 1;
+
+            /* Keep reducing index j of pattern while
+            characters of pattern and text are matching
+            at this shift s*/
+                while(j >= 0 && pat[j] == dnaSequence.getNucleotideByte(s + j))
+                    j--;
+
+            /* If the pattern is present at the current shift,
+            then index j will become -1 after the above loop */
+                if (j < 0)
+                {
+                    return s;
+                }
+                else {
+                /*pat[i] != pat[s+j] so shift the pattern
+                shift[j+1] times */
+                    int badCharShift = (s + m < endIndex) ? m - badchar[dnaSequence.getNucleotideByte(s + m) & 0xFF] : 1;
+                    s += max(shift[j + 1], badCharShift);
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Searches for the pattern in text[beginIndex, endIndex).
+         * @return index of the first match in the text, or -1 if not found.
+         * */
+        int search(byte[] text, int beginIndex, int endIndex)
+        {
+            int s = beginIndex, j;
+
+            while(s <= endIndex - m)
+            {
+                j = m - 1;
+                while(j >= 0 && pat[j] == text[s + j])
+                    j--;
+
+                if (j < 0)
+                {
+                    return s;
+                }
+                else {
+                    int badCharShift = (s + m < endIndex) ? m - badchar[text[s + m] & 0xFF] : 1;
+                    s += max(shift[j + 1], badCharShift);
+                }
+            }
+            return -1;
+        }
+    }
+}
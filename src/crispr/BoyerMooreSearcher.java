@@ -0,0 +1,31 @@
+package crispr;
+
+/**
+ * Searches the pattern with Boyer-Moore algorithm in the given range of the sequence.
+ * */
+public class BoyerMooreSearcher implements PatternSearcher {
+    private final DNASequence dnaSequence;
+    private final BoyerMoore.Pattern pattern;
+    private final int length;
+
+    BoyerMooreSearcher(DNASequence dnaSequence, int length) {
+        this.dnaSequence = dnaSequence;
+        this.pattern = new BoyerMoore.Pattern(length);
+        this.length = length;
+    }
+
+    @Override
+    public void setPattern(int beginIndex) {
+        pattern.set(dnaSequence, beginIndex, length);
+    }
+
+    @Override
+    public int patternLength() {
+        return length;
+    }
+
+    @Override
+    public int search(int beginIndex, int endIndex) {
+        return pattern.search(dnaSequence, beginIndex, endIndex);
+    }
+}
@@ -0,0 +1,353 @@
+package crispr;
+
+import java.util.Arrays;
+
+import static java.lang.Math.*;
+
+public class CRISPRArray {
+    /**
+     * Strand the repeats were found on. Positions are always on the forward strand.
+     * */
+    public enum Strand {
+        FORWARD,
+        REVERSE
+    }
+
+    private DNASequence dnaSequence;
+    private Strand strand = Strand.FORWARD;
+    // repeat positions are stored relative to positionOffset, so extending to left changes only the offset
+    private int[] repeatIndices;
+    private int numRepeats;
+    private int positionOffset;
+    private int repeatLength;
+
+    CRISPRArray(DNASequence dnaSequence, int firstRepeatIndex, int secondRepeatIndex, int length) {
+        this.dnaSequence = dnaSequence;
+        repeatIndices = new int[4];
+        addRepeat(firstRepeatIndex);
+        addRepeat(secondRepeatIndex);
+        setRepeatLength(length);
+    }
+
+    /**
+     * Copies repeat positions and length of another CRISPR array.
+     * */
+    CRISPRArray(CRISPRArray other) {
+        this.dnaSequence = other.dnaSequence;
+        this.repeatIndices = Arrays.copyOf(other.repeatIndices, other.repeatIndices.length);
+        this.numRepeats = other.numRepeats;
+        this.positionOffset = other.positionOffset;
+        this.repeatLength = other.repeatLength;
+        this.strand = other.strand;
+    }
+
+    /**
+     * Converts an array found on a reverse complement view to forward strand positions, in the forward view
+     * of the same nucleotides. Repeats are listed from left to right on the forward strand, as for forward arrays.
+     * */
+    static CRISPRArray fromReverseStrand(CRISPRArray reverseArray) {
+        DNASequence forwardSequence = reverseArray.dnaSequence.reverseComplement();
+        int length = forwardSequence.length();
+        int repeatLength = reverseArray.repeatLength;
+        int numRepeats = reverseArray.numRepeats;
+        CRISPRArray forwardArray = new CRISPRArray(forwardSequence,
+                length - reverseArray.getRepeatPosition(numRepeats - 1) - repeatLength,
+                length - reverseArray.getRepeatPosition(numRepeats - 2) - repeatLength, repeatLength);
+        for (int i = numRepeats - 3; i >= 0; --i) {
+            forwardArray.addRepeat(length - reverseArray.getRepeatPosition(i) - repeatLength);
+        }
+        forwardArray.strand = Strand.REVERSE;
+        return forwardArray;
+    }
+
+    /**
+     * @return copy of this array in another sequence, e.g. an edited version of this one, with positions moved by offset
+     * */
+    CRISPRArray shiftedTo(DNASequence otherSequence, int offset) {
+        CRISPRArray shiftedArray = new CRISPRArray(this);
+        shiftedArray.dnaSequence = otherSequence;
+        shiftedArray.positionOffset += offset;
+        return shiftedArray;
+    }
+
+    public Strand getStrand() {
+        return strand;
+    }
+
+    public void addRepeat(int index) {
+        if (numRepeats == repeatIndices.length) {
+            repeatIndices = Arrays.copyOf(repeatIndices, numRepeats * 2);
+        }
+        repeatIndices[numRepeats++] = index - positionOffset;
+    }
+
+    public int getSpacerLength(int index) {
+        return getRepeatPosition(index + 1) - (getRepeatPosition(index) + repeatLength);
+    }
+
+    public int getAverageSpacerLength() {
+        int totalSpacerLength = 0;
+        for (int i = 0; i < getNumSpacers(); ++i) {
+            totalSpacerLength += getSpacerLength(i);
+        }
+        return totalSpacerLength / getNumSpacers();
+    }
+
+    public int getRepeatLength() {
+        return repeatLength;
+    }
+    
+    public void setRepeatLength(int len) {
+       repeatLength = len;
+    }
+
+    public int getRepeatPosition(int index) {
+        if (index >= numRepeats) {
+            throw new ArrayIndexOutOfBoundsException("Array index out of range: " + index);
+        }
+        return repeatIndices[index] + positionOffset;
+    }
+
+    public int getNumRepeats() {
+        return numRepeats;
+    }
+
+    public int getNumSpacers() {
+        return numRepeats - 1;
+    }
+
+    public int getShortestRepeatSpacing() {
+        // spacing does not depend on positionOffset
+        int shortestRepeatSpacing = repeatIndices[1] - repeatIndices[0];
+        for (int i = 0; i < getNumRepeats() - 1; i++) {
+            int currRepeatIndex = repeatIndices[i];
+            int nextRepeatIndex = repeatIndices[i + 1];
+            int currRepeatSpacing = nextRepeatIndex - currRepeatIndex;
+            if (currRepeatSpacing < shortestRepeatSpacing)
+                shortestRepeatSpacing = currRepeatSpacing;
+        }
+        return shortestRepeatSpacing;
+    }
+
+    /**
+     * Extends all repeats to the left by given size.
+     * */
+    void extendLeft(int size) {
+        positionOffset -= size;
+        setRepeatLength(repeatLength + size);
+    }
+
+    /**
+     * Extends all repeats to the right by given size.
+     * */
+    void extendRight(int size) {
+        setRepeatLength(repeatLength + size);
+    }
+
+    public int getStartIndex() {
+        return getRepeatPosition(0);
+    }
+
+    public int getEndIndex() {
+        return getRepeatPosition(getNumRepeats() - 1) + repeatLength;
+    }
+
+    DNASequence getDNASequence() {
+        return dnaSequence;
+    }
+
+    /**
+     * @return position in the record of index 0 of the sequence the array was found in, not 0 for windows of long records
+     * */
+    public long getSequenceOffset() {
+        return dnaSequence.getOffset();
+    }
+
+    /**
+     * @return getStartIndex in record coordinates
+     * */
+    public long getStartPosition() {
+        return getSequenceOffset() + getStartIndex();
+    }
+
+    /**
+     * @return getEndIndex in record coordinates
+     * */
+    public long getEndPosition() {
+        return getSequenceOffset() + getEndIndex();
+    }
+
+    private String getRepeat(int i) {
+        int repeatStart = getRepeatPosition(i);
+        return dnaSequence.subSequence(repeatStart, repeatStart + repeatLength);
+    }
+
+    private String getSpacer(int i) {
+        return dnaSequence.subSequence(getRepeatPosition(i) + repeatLength, getRepeatPosition(i + 1));
+    }
+
+    /**
+     * Checks if given two sequences are more similar than similarityThreshold
+     * */
+    public static boolean areSimilar(String s1, String s2, double similarityThreshold)
+    {
+        return areSimilar(s1, s2, similarityThreshold, null);
+    }
+
+    /**
+     * Checks if given two sequences are more similar than similarityThreshold, counting distance computations in statistics
+     * */
+    private static boolean areSimilar(String s1, String s2, double similarityThreshold, ScanStatistics statistics)
+    {	int maxLength = max(s1.length(), s2.length());
+        int maxDistance = getMaxSimilarDistance(maxLength, similarityThreshold);
+        if (maxDistance < 0) {
+            return false;
+        }
+        if (statistics != null) {
+            statistics.levenshteinCalls.increment();
+        }
+        // distance computation stops as soon as the sequences can not be similar
+        return LevenshteinDistance.getLevenshteinDistance(s1, s2, maxDistance) <= maxDistance;
+    }
+
+    /**
+     * @return the largest Levenshtein distance for which sequences of maxLength are more similar than similarityThreshold,
+     * or -1 if there is none.
+     * */
+    private static int getMaxSimilarDistance(int maxLength, double similarityThreshold) {
+        // start from the estimate and fix it with the exact similarity expression, so rounding agrees with it
+        int distance = (int) ((1.0 - similarityThreshold) * maxLength);
+        while (distance >= 0 && !isSimilarDistance(distance, maxLength, similarityThreshold)) {
+            --distance;
+        }
+        while (distance < maxLength && isSimilarDistance(distance + 1, maxLength, similarityThreshold)) {
+            ++distance;
+        }
+        return distance;
+    }
+
+    private static boolean isSimilarDistance(int distance, int maxLength, double similarityThreshold) {
+        double similarity = 1.0 - (double)distance/maxLength;
+        return similarity > similarityThreshold;
+    }
+
+    /**
+     * Checks if spacers are no more similar than given similarityThreshold.
+     * Checks if spacers are no more similar with repeats than given similarityThreshold.
+     * Checks maximum 5 spacers.
+     * */
+    public boolean hasNonRepeatingSpacers(double similarityThreshold) {
+        return hasNonRepeatingSpacers(similarityThreshold, null);
+    }
+
+    /**
+     * Same as hasNonRepeatingSpacers(double), counting distance computations in statistics if it is not null.
+     * */
+    boolean hasNonRepeatingSpacers(double similarityThreshold, ScanStatistics statistics) {
+        final int maxNumSpacersToCheck = 5;
+        int numSpacerToCheck = min(maxNumSpacersToCheck, getNumRepeats() - 1);
+
+        if (numSpacerToCheck == 1) {
+            String curSpacer = getSpacer(0);
+            String firstRepeat = getRepeat(0);
+            String secondRepeat = getRepeat(1);
+            
+            return !areSimilar(curSpacer, firstRepeat, similarityThreshold, statistics)
+                    && !areSimilar(curSpacer, secondRepeat, similarityThreshold, statistics);
+        }
+        
+        for (int i = 0; i < numSpacerToCheck - 1; ++i) {
+            String curSpacer = getSpacer(i);
+            String repeat = getRepeat(i);
+            if (areSimilar(curSpacer, repeat, similarityThreshold, statistics)) {
+                return false;
+            }
+            
+            for (int j = i + 1; j < numSpacerToCheck; ++j) {
+                repeat = getRepeat(j);
+                String spacer = getSpacer(j);
+
+                if (areSimilar(curSpacer, spacer, similarityThreshold, statistics)
+                        || areSimilar(curSpacer, repeat, similarityThreshold, statistics)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks if spacers' lengths differ no more than spacerToSpacerLengthDiff.
+     * Checks if spacers' lengths differ from repeats' length no more than spacerToRepeatLengthDiff.
+     * */
+    public boolean hasSimilarlySizedSpacers(int spacerToSpacerLengthDiff, int spacerToRepeatLengthDiff) {
+        int numSpacers = getNumSpacers();
+        for (int i = 0; i < numSpacers; ++i) {
+            int currentSpacerLength = getSpacerLength(i);
+            if (abs(currentSpacerLength - repeatLength) > spacerToRepeatLengthDiff) {
+                return false;
+            }
+
+            for (int j = i + 1; j < numSpacers; ++j) {
+                if (abs(currentSpacerLength - getSpacerLength(j)) > spacerToSpacerLengthDiff) {
+                    return false;
+                }
+            }
+        }
+        
+        return true;
+    }
+
+    public String toString() {
+        if (strand == Strand.REVERSE) {
+            return toReverseStrandString();
+        }
+        StringBuilder result = new StringBuilder();
+        long sequenceOffset = getSequenceOffset();
+        result.append("Range: ").append(getStartPosition()).append("-").append(getEndPosition()).append("\n");
+
+        result.append("---------------------------------------------------------------------------------------------\n");
+        for (int i = 0; i < getNumRepeats(); ++i) {
+            int repeatIndex = getRepeatPosition(i);
+            int nextRepeatIndex = (i < getNumRepeats() - 1) ? getRepeatPosition(i + 1) : -1;
+            int spacerIndex = repeatIndex + repeatLength;
+
+            String repeat = dnaSequence.subSequence(repeatIndex, spacerIndex);
+            String spacer = (nextRepeatIndex > 0) ? dnaSequence.subSequence(spacerIndex, nextRepeatIndex) : "";
+            result.append(sequenceOffset + repeatIndex + 1).append("\t").append(repeat).append("\t")
+                    .append(sequenceOffset + spacerIndex + 1).append("\t").append(spacer).append("\n");
+        }
+        result.append("---------------------------------------------------------------------------------------------\n");
+        result.append("Repeats:").append(getNumRepeats()).append("\t").append("Average Repeat Length: ").append(getRepeatLength()).append("\t")
+                .append("Average Spacer Length: ").append(getAverageSpacerLength()).append("\n");
+        return result.toString();
+    }
+
+    /**
+     * Same layout as toString of a forward array, read on the reverse strand: repeats and spacers are reverse
+     * complemented and listed from right to left, with the forward strand positions where they begin on the reverse strand.
+     * */
+    private String toReverseStrandString() {
+        DNASequence reverseSequence = dnaSequence.reverseComplement();
+        int length = dnaSequence.length();
+        long sequenceOffset = getSequenceOffset();
+        StringBuilder result = new StringBuilder();
+        result.append("Range: ").append(getStartPosition()).append("-").append(getEndPosition()).append(" (reverse strand)\n");
+
+        result.append("---------------------------------------------------------------------------------------------\n");
+        for (int i = getNumRepeats() - 1; i >= 0; --i) {
+            int repeatEnd = getRepeatPosition(i) + repeatLength;
+            int spacerEnd = (i > 0) ? getRepeatPosition(i - 1) + repeatLength : -1;
+
+            String repeat = reverseSequence.subSequence(length - repeatEnd, length - getRepeatPosition(i));
+            String spacer = (i > 0) ? reverseSequence.subSequence(length - getRepeatPosition(i), length - spacerEnd) : "";
+            result.append(sequenceOffset + repeatEnd).append("\t").append(repeat).append("\t")
+                    .append(sequenceOffset + getRepeatPosition(i)).append("\t").append(spacer).append("\n");
+        }
+        result.append("---------------------------------------------------------------------------------------------\n");
+        result.append("Repeats:").append(getNumRepeats()).append("\t").append("Average Repeat Length: ").append(getRepeatLength()).append("\t")
+                .append("Average Spacer Length: ").append(getAverageSpacerLength()).append("\n");
+        return result.toString();
+    }
+}
@@ -0,0 +1,8 @@
+package crispr;
+
+/**
+ * Receives CRISPR arrays as soon as they are found and validated, in the order of their positions.
+ * */
+public interface CRISPRArraySink {
+    void accept(CRISPRArray crisprArray);
+}
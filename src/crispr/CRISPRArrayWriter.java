@@ -0,0 +1,263 @@
+package crispr;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes CRISPR arrays to a channel as soon as they are found. Subclasses define the output format.
+ * Everything goes through one large buffer, the channel is written only when the buffer is full,
+ * at the end of each sequence and, if flushEachArray is set, after each array.
+ * */
+public abstract class CRISPRArrayWriter implements CRISPRArraySink {
+    public enum Format {TEXT, TSV, GFF3, BINARY}
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final boolean flushEachArray;
+    private final byte[] digits = new byte[20];
+    private boolean isFileHeaderWritten;
+
+    // sequence being written, numbered from 1
+    protected DNASequence dnaSequence;
+    protected int sequenceNumber;
+    // arrays of the sequence written so far
+    protected int numCRISPRs;
+
+    /**
+     * @param channel channel receiving the output
+     * @param bufferSize size of the output buffer in bytes
+     * @param flushEachArray if true, every array is flushed at once, so it shows up while the scan goes on
+     * */
+    CRISPRArrayWriter(WritableByteChannel channel, int bufferSize, boolean flushEachArray) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+        this.flushEachArray = flushEachArray;
+    }
+
+    /**
+     * @return format of the given name (text, tsv, gff3 or binary), or null if there is no such format
+     * */
+    public static Format getFormat(String name) {
+        switch (name) {
+            case "text":
+                return Format.TEXT;
+            case "tsv":
+                return Format.TSV;
+            case "gff3":
+                return Format.GFF3;
+            case "binary":
+                return Format.BINARY;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return extension of files of the given format, with the dot
+     * */
+    public static String getFileExtension(Format format) {
+        switch (format) {
+            case TSV:
+                return ".tsv";
+            case GFF3:
+                return ".gff3";
+            case BINARY:
+                return ".bin";
+            default:
+                return ".txt";
+        }
+    }
+
+    /**
+     * @return writer of the given format with a buffer of DEFAULT_BUFFER_SIZE bytes
+     * */
+    public static CRISPRArrayWriter create(Format format, WritableByteChannel channel, boolean flushEachArray) {
+        switch (format) {
+            case TSV:
+                return new TsvCRISPRArrayWriter(channel, DEFAULT_BUFFER_SIZE, flushEachArray);
+            case GFF3:
+                return new Gff3CRISPRArrayWriter(channel, DEFAULT_BUFFER_SIZE, flushEachArray);
+            case BINARY:
+                return new BinaryCRISPRArrayWriter(channel, DEFAULT_BUFFER_SIZE, flushEachArray);
+            default:
+                return new TextCRISPRArrayWriter(channel, DEFAULT_BUFFER_SIZE, flushEachArray);
+        }
+    }
+
+    /**
+     * Writes the header of the sequence. Should be called before its arrays are passed.
+     * */
+    public void beginSequence(DNASequence dnaSequence) {
+        beginFile();
+        this.dnaSequence = dnaSequence;
+        ++sequenceNumber;
+        numCRISPRs = 0;
+        writeSequenceHeader();
+    }
+
+    @Override
+    public void accept(CRISPRArray crisprArray) {
+        ++numCRISPRs;
+        writeCRISPRArray(crisprArray);
+        if (flushEachArray) {
+            flush();
+        }
+    }
+
+    /**
+     * Should be called after all arrays of the sequence are passed.
+     * */
+    public void endSequence() {
+        writeSequenceFooter();
+        flush();
+    }
+
+    /**
+     * Flushes the buffer and closes the channel.
+     * */
+    public void close() throws IOException {
+        try {
+            beginFile();
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void beginFile() {
+        if (!isFileHeaderWritten) {
+            isFileHeaderWritten = true;
+            writeFileHeader();
+        }
+    }
+
+    protected abstract void writeFileHeader();
+
+    protected abstract void writeSequenceHeader();
+
+    protected abstract void writeCRISPRArray(CRISPRArray crisprArray);
+
+    protected abstract void writeSequenceFooter();
+
+    /**
+     * @return identifier of the current sequence, the first word of its header
+     * */
+    protected String getSequenceId() {
+        String header = dnaSequence.getHeader();
+        int begin = header.startsWith(">") ? 1 : 0;
+        int end = begin;
+        while (end < header.length() && !Character.isWhitespace(header.charAt(end))) {
+            ++end;
+        }
+        return (end > begin) ? header.substring(begin, end) : "sequence" + sequenceNumber;
+    }
+
+    /**
+     * @return the buffer with at least numBytes bytes free, for writing binary values
+     * */
+    protected ByteBuffer reserve(int numBytes) {
+        if (buffer.remaining() < numBytes) {
+            writeBuffer();
+        }
+        return buffer;
+    }
+
+    protected void put(byte b) {
+        reserve(1).put(b);
+    }
+
+    protected void put(byte[] bytes) {
+        int offset = 0;
+        while (offset < bytes.length) {
+            int length = Math.min(bytes.length - offset, reserve(1).remaining());
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+    }
+
+    /**
+     * Puts the text in UTF-8.
+     * */
+    protected void put(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                put(text.substring(i).getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            put((byte) c);
+        }
+    }
+
+    /**
+     * Puts the decimal digits of the value, without creating a string.
+     * */
+    protected void putDecimal(long value) {
+        if (value == Long.MIN_VALUE) {
+            put(Long.toString(value));
+            return;
+        }
+        reserve(digits.length + 1);
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int numDigits = 0;
+        do {
+            digits[numDigits++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        while (numDigits > 0) {
+            buffer.put(digits[--numDigits]);
+        }
+    }
+
+    /**
+     * Puts nucleotides of the sequence from beginIndex to endIndex, without creating a string.
+     * */
+    protected void putNucleotides(DNASequence dnaSequence, int beginIndex, int endIndex) {
+        for (int i = beginIndex; i < endIndex; i++) {
+            put(dnaSequence.getNucleotideByte(i));
+        }
+    }
+
+    /**
+     * Puts the first repeat of the array as read on its strand, reverse complemented for reverse strand arrays.
+     * The array may have been found in a window of the current sequence, whose nucleotides are read.
+     * */
+    protected void putRepeat(CRISPRArray crisprArray) {
+        DNASequence dnaSequence = crisprArray.getDNASequence();
+        int repeatLength = crisprArray.getRepeatLength();
+        if (crisprArray.getStrand() == CRISPRArray.Strand.FORWARD) {
+            putNucleotides(dnaSequence, crisprArray.getStartIndex(), crisprArray.getStartIndex() + repeatLength);
+            return;
+        }
+        for (int i = crisprArray.getEndIndex() - 1; i >= crisprArray.getEndIndex() - repeatLength; i--) {
+            put(DNASequence.complement(dnaSequence.getNucleotideByte(i)));
+        }
+    }
+
+    private void writeBuffer() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            buffer.clear();
+        }
+    }
+
+    private void flush() {
+        if (buffer.position() > 0) {
+            writeBuffer();
+        }
+    }
+}
@@ -0,0 +1,657 @@
+package crispr;
+
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+public class CRISPRArraysFinder {
+
+    // TODO remove hardcoded values
+    public static String sequenceFile = "";
+    public static String outputFile = "";
+    public static String batchInput = "";
+    // empty if no parameter sweep is run
+    public static String sweepGrid = "";
+    public static String outputDirectory = "crispr_output";
+    // -1 if no scan server is started
+    public static int serverPort = -1;
+    public static int queueCapacity = -1;
+    // empty if no statistics are collected
+    public static String statisticsFile = "";
+    private static ScanStatistics statistics;
+
+    public static int minNumberRepeats = 3;
+    public static int minRepeatLength = 19;
+    public static int maxRepeatLength = 38;
+    public static int searchWindowLength = 8;
+    public static int minSpacerLength = 19;
+    public static int maxSpacerLength = 48;
+    public static int numThreads = 1;
+    public static boolean scanBothStrands = false;
+    public static int maxMismatches = 0;
+    public static boolean useVectorKernels = false;
+    // NaN if low-complexity regions are not masked, as by default, -mask sets the DUST threshold
+    public static double maskThreshold = Double.NaN;
+    // empty if suffix arrays are not saved
+    public static String indexDirectory = "";
+    // empty if sequences are not cached
+    public static String cacheDirectory = "";
+    public static long cacheSizeMB = SequenceCache.DEFAULT_MAX_BYTES >> 20;
+    private static SequenceCache sequenceCache;
+
+    public static CRISPRSearchEngine.SearchMethod searchMethod = CRISPRSearchEngine.SearchMethod.BOYER_MOORE;
+    public static CRISPRArrayWriter.Format outputFormat = CRISPRArrayWriter.Format.TEXT;
+
+    /**
+     * Parses command line arguments and sets members of the class
+     * */
+    private static boolean parseArgs(String[] args) {
+        boolean isInputFileSpecified = false;
+        for (int i = 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "-inputFile":
+                    ++i;
+                    if (i >= args.length || args[i].startsWith("-")) {
+                        System.out.println("Input file name is not specified. Exiting.");
+                        return false;
+                    }
+                    sequenceFile = args[i];
+                    isInputFileSpecified = true;
+                    break;
+
+                case "-outputFile":
+                    ++i;
+                    if (i >= args.length || args[i].startsWith("-")) {
+                        System.out.println("Output file name is not specified.");
+                        return false;
+                    }
+                    outputFile = args[i];
+                    break;
+
+                case "-batch":
+                    ++i;
+                    if (i >= args.length || args[i].startsWith("-")) {
+                        System.out.println("Batch directory or manifest is not specified. Exiting.");
+                        return false;
+                    }
+                    batchInput = args[i];
+                    break;
+
+                case "-sweep":
+                    ++i;
+                    if (i >= args.length || args[i].startsWith("-")) {
+                        System.out.println("Parameter grid file is not specified. Exiting.");
+                        return false;
+                    }
+                    sweepGrid = args[i];
+                    break;
+
+                case "-outputDir":
+                    ++i;
+                    if (i >= args.length || args[i].startsWith("-")) {
+                        System.out.println("Output directory is not specified. Using default directory crispr_output.");
+                        --i;
+                        continue;
+                    }
+                    outputDirectory = args[i];
+                    break;
+
+                case "-server":
+                    ++i;
+                    if (i >= args.length || args[i].startsWith("-")) {
+                        System.out.println("Server port is not specified. Using any free port.");
+                        serverPort = 0;
+                        --i;
+                        continue;
+                    }
+                    serverPort = Integer.parseInt(args[i]);
+                    break;
+
+                case "-queueCapacity":
+                    ++i;
+                    if (i >= args.length || args[i].startsWith("-")) {
+                        System.out.println("Queue capacity is not specified. Using default value of twice the number of threads.");
+                        --i;
+                        continue;
+                    }
+                    queueCapacity = Integer.parseInt(args[i]);
+                    break;
+
+                case "-stats":
+                    ++i;
+                    if (i >= args.length || args[i].startsWith("-")) {
+                        statisticsFile = "crispr_stats.json";
+                        --i;
+                        continue;
+                    }
+                    statisticsFile = args[i];
+                    break;
+
+                case "-bothStrands":
+                    scanBothStrands = true;
+                    break;
+
+                case "-mask":
+                    ++i;
+                    if (i >= args.length || args[i].startsWith("-")) {
+                        maskThreshold = LowComplexityMask.DEFAULT_THRESHOLD;
+                        --i;
+                        continue;
+                    }
+                    maskThreshold = Double.parseDouble(args[i]);
+                    break;
+
+                case "-noMask":
+                    maskThreshold = Double.NaN;
+                    break;
+
+                case "-simd":
+                    useVectorKernels = true;
+                    if (!VectorKernels.isAvailable()) {
+                        System.out.println("Vector API is not available, run java with --add-modules jdk.incubator.vector."
+                                + " Using scalar kernels.");
+                    }
+                    break;
+
+                case "-mismatches":
+                    ++i;
+                    if (i >= args.length || args[i].startsWith("-")) {
+                        System.out.println("Number of mismatches is not specified. Using default value 0.");
+                        --i;
+                        continue;
+                    }
+                    try {
+                        maxMismatches = Integer.parseInt(args[i]);
+                    } catch (NumberFormatException ex) {
+                        System.out.println("Number of mismatches " + args[i] + " is not a number. Exiting.");
+                        return false;
+                    }
+                    break;
+
+                case "-indexDir":
+                    ++i;
+                    if (i >= args.length || args[i].startsWith("-")) {
+                        System.out.println("Index directory is not specified. Suffix arrays are not saved.");
+                        --i;
+                        continue;
+                    }
+                    indexDirectory = args[i];
+                    break;
+
+                case "-cacheDir":
+                    ++i;
+                    if (i >= args.length || args[i].startsWith("-")) {
+                        System.out.println("Cache directory is not specified. Sequences are not cached.");
+                        --i;
+                        continue;
+                    }
+                    cacheDirectory = args[i];
+                    break;
+
+                case "-cacheSize":
+                    ++i;
+                    if (i >= args.length || args[i].startsWith("-")) {
+                        System.out.println("Cache size is not specified. Using default value " + cacheSizeMB + " MB.");
+                        --i;
+                        continue;
+                    }
+                    cacheSizeMB = Long.parseLong(args[i]);
+                    break;
+
+                case "-minNumRepeats":
+                    ++i;
+                    if (i >= args.length || args[i].startsWith("-")) {
+                        System.out.println("Minimum number of repeats is not specified. Using default value 3.");
+                        --i;
+                        continue;
+                    }
+                    minNumberRepeats = Integer.parseInt(args[i]);
+                    break;
+
+                case "-minRepeatLength":
+                    ++i;
+                    if (i >= args.length || args[i].startsWith("-")) {
+                        System.out.println("Minimum repeat length is not specified. Using default value 19.");
+                        --i;
+                        continue;
+                    }
+                    minRepeatLength = Integer.parseInt(args[i]);
+                    break;
+                case "-maxRepeatLength":
+                    ++i;
+                    if (i >= args.length || args[i].startsWith("-")) {
+                        System.out.println("Maximum repeat length is not specified. Using default value 38.");
+                        --i;
+                        continue;
+                    }
+                    maxRepeatLength = Integer.parseInt(args[i]);
+                    break;
+
+
+                case "-minSpacerLength":
+                    ++i;
+                    if (i >= args.length || args[i].startsWith("-")) {
+                        System.out.println("Minimum spacer length is not specified. Using default value 19.");
+                        --i;
+                        continue;
+                    }
+                    minSpacerLength = Integer.parseInt(args[i]);
+                    break;
+                case "-maxSpacerLength":
+                    ++i;
+                    if (i >= args.length || args[i].startsWith("-")) {
+                        System.out.println("Maximum spacer length is not specified. Using default value 48.");
+                        --i;
+                        continue;
+                    }
+                    maxSpacerLength = Integer.parseInt(args[i]);
+                    break;
+                case "-searchWindow":
+                    ++i;
+                    if (i >= args.length || args[i].startsWith("-")) {
+                        System.out.println("Search window length is not specified. Using default value 8.");
+                        --i;
+                        continue;
+                    }
+                    searchWindowLength = Integer.parseInt(args[i]);
+                    break;
+                case "-threads":
+                    ++i;
+                    if (i >= args.length || args[i].startsWith("-")) {
+                        System.out.println("Number of threads is not specified. Using all available processors.");
+                        numThreads = Runtime.getRuntime().availableProcessors();
+                        --i;
+                        continue;
+                    }
+                    numThreads = Integer.parseInt(args[i]);
+                    break;
+                case "-engine":
+                    ++i;
+                    if (i >= args.length || args[i].startsWith("-")) {
+                        System.out.println("Search engine is not specified. Using default engine boyer-moore.");
+                        --i;
+                        continue;
+                    }
+                    if (args[i].equals("boyer-moore")) {
+                        searchMethod = CRISPRSearchEngine.SearchMethod.BOYER_MOORE;
+                    } else if (args[i].equals("kmer")) {
+                        searchMethod = CRISPRSearchEngine.SearchMethod.KMER_INDEX;
+                    } else if (args[i].equals("suffix-array")) {
+                        searchMethod = CRISPRSearchEngine.SearchMethod.SUFFIX_ARRAY;
+                    } else {
+                        System.out.println("Unknown search engine " + args[i] + ". Using default engine boyer-moore.");
+                    }
+                    break;
+                case "-outputFormat":
+                    ++i;
+                    if (i >= args.length || args[i].startsWith("-")) {
+                        System.out.println("Output format is not specified. Using default format text.");
+                        --i;
+                        continue;
+                    }
+                    if (CRISPRArrayWriter.getFormat(args[i]) != null) {
+                        outputFormat = CRISPRArrayWriter.getFormat(args[i]);
+                    } else {
+                        System.out.println("Unknown output format " + args[i] + ". Using default format text.");
+                    }
+                    break;
+                default:
+                    System.out.println("Unknown feature " + args[0] + ". Ignoring.");
+
+            }
+        }
+        if (maxMismatches < 0 || maxMismatches >= searchWindowLength) {
+            // with as many mismatches as the search window is long, every position matches
+            System.out.println("Number of mismatches must be from 0 to " + (searchWindowLength - 1)
+                    + ", less than the search window length. Exiting.");
+            return false;
+        }
+        if (maxMismatches > 0 && searchWindowLength > MismatchSearcher.MAX_PATTERN_LENGTH) {
+            System.out.println("Mismatches are supported for search windows up to " + MismatchSearcher.MAX_PATTERN_LENGTH
+                    + " long. Exiting.");
+            return false;
+        }
+        if (!sweepGrid.isEmpty() && !isInputFileSpecified) {
+            System.out.println("Parameter sweep needs an input file. Exiting.");
+            return false;
+        }
+        if (!isInputFileSpecified && batchInput.isEmpty() && serverPort < 0) {
+            System.out.println("Input file name is not specified. Exiting.");
+            return false;
+        }
+        return true;
+    }
+
+    private static CRISPRSearchEngine newSearchEngine(DNASequence dnaSequence) {
+        return newSearchEngine(dnaSequence, new ParameterSweep.ParameterSet(minNumberRepeats, minRepeatLength,
+                maxRepeatLength, minSpacerLength, maxSpacerLength));
+    }
+
+    private static CRISPRSearchEngine newSearchEngine(DNASequence dnaSequence, ParameterSweep.ParameterSet parameters) {
+        CRISPRSearchEngine searchEngine = new CRISPRSearchEngine(dnaSequence, parameters.getMinNumberRepeats(),
+                parameters.getMinRepeatLength(), parameters.getMaxRepeatLength(), searchWindowLength,
+                parameters.getMinSpacerLength(), parameters.getMaxSpacerLength());
+        searchEngine.setSearchMethod(searchMethod);
+        searchEngine.setStatistics(statistics);
+        searchEngine.setScanBothStrands(scanBothStrands);
+        searchEngine.setMaxMismatches(maxMismatches);
+        searchEngine.setUseVectorKernels(useVectorKernels);
+        searchEngine.setMaskThreshold(maskThreshold);
+        if (!indexDirectory.isEmpty()) {
+            searchEngine.setIndexDirectory(Paths.get(indexDirectory));
+        } else if (sequenceCache != null) {
+            searchEngine.setIndexDirectory(sequenceCache.getDirectory());
+        }
+        return searchEngine;
+    }
+
+    /**
+     * Main function finding CRISPR arrays in DNA sequence
+     * @param dnaSequence the DNA sequence provided by the user
+     * @param numThreads number of threads scanning the sequence
+     * @return vector of CRISPR arrays found in the sequence
+     * */
+    private static Vector<CRISPRArray> findCRIPSRs(DNASequence dnaSequence, int numThreads) {
+        return newSearchEngine(dnaSequence).findCRISPRs(numThreads);
+    }
+
+    /**
+     * Finds CRISPR arrays in DNA sequence and writes each of them to the outputs as soon as it is found.
+     * */
+    private static void streamCRISPRs(DNASequence dnaSequence, Vector<CRISPRArrayWriter> outputs) {
+        long startTime = System.nanoTime();
+        for (CRISPRArrayWriter output : outputs) {
+            output.beginSequence(dnaSequence);
+        }
+        addOutputTime(startTime, 0);
+        newSearchEngine(dnaSequence).findCRISPRs(numThreads, crisprArray -> {
+            long outputStartTime = System.nanoTime();
+            for (CRISPRArrayWriter output : outputs) {
+                output.accept(crisprArray);
+            }
+            addOutputTime(outputStartTime, 1);
+        });
+        startTime = System.nanoTime();
+        for (CRISPRArrayWriter output : outputs) {
+            output.endSequence();
+        }
+        addOutputTime(startTime, 0);
+    }
+
+    private static void addOutputTime(long startTime, int numCRISPRs) {
+        if (statistics != null) {
+            statistics.outputNanos.add(System.nanoTime() - startTime);
+            statistics.crisprArrays.add(numCRISPRs);
+        }
+    }
+
+    /**
+     * Function visualizing program output
+     * */
+    private static void printCRISPRs(DNASequence dnaSequence, Vector<CRISPRArray> crisprs, Vector<CRISPRArrayWriter> outputs) {
+        long startTime = System.nanoTime();
+        for (CRISPRArrayWriter output : outputs) {
+            output.beginSequence(dnaSequence);
+            for (CRISPRArray crispr : crisprs) {
+                output.accept(crispr);
+            }
+            output.endSequence();
+        }
+        addOutputTime(startTime, crisprs.size());
+    }
+
+    /**
+     * Prints statistics and writes them to statisticsFile.
+     * */
+    private static void reportStatistics() {
+        statistics.printSummary();
+        try {
+            statistics.writeJson(statisticsFile);
+        }
+        catch (IOException ex) {
+            System.out.println("Exception while writing to file " + statisticsFile + ".");
+            System.out.println(ex);
+        }
+    }
+
+    /**
+     * Opens standard output for text and outputFile, if specified, for outputFormat.
+     * */
+    private static Vector<CRISPRArrayWriter> openOutputs() {
+        Vector<CRISPRArrayWriter> outputs = new Vector<>();
+        outputs.add(CRISPRArrayWriter.create(CRISPRArrayWriter.Format.TEXT, Channels.newChannel(System.out), true));
+        if (outputFile.isEmpty()) {
+            return outputs;
+        }
+        try {
+            FileChannel channel = FileChannel.open(Paths.get(outputFile),
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+            outputs.add(CRISPRArrayWriter.create(outputFormat, channel, false));
+        }
+        catch (IOException ex) {
+            System.out.println("Exception while writing to file " + outputFile + ".");
+            System.out.println(ex);
+        }
+        return outputs;
+    }
+
+    /**
+     * Scans records of a multi-record fasta file on numThreads workers.
+     * Records are read while earlier ones are scanned, results are printed in input order.
+     * */
+    private static void scanRecords(FastaReader fastaReader, DNASequence first, DNASequence second, Vector<CRISPRArrayWriter> outputs)
+            throws IOException, InterruptedException, ExecutionException {
+        int queueCapacity = 2 * numThreads;
+        // finished results waiting for a slow earlier record are held at most this many
+        int maxPendingResults = 2 * (numThreads + queueCapacity);
+
+        CRISPRSearchQueue searchQueue = new CRISPRSearchQueue(numThreads, queueCapacity,
+                dnaSequence -> findCRIPSRs(dnaSequence, 1));
+        ArrayDeque<DNASequence> pendingSequences = new ArrayDeque<>();
+        ArrayDeque<Future<Vector<CRISPRArray>>> pendingResults = new ArrayDeque<>();
+        try {
+            DNASequence dnaSequence = first;
+            while (dnaSequence != null) {
+                pendingSequences.add(dnaSequence);
+                pendingResults.add(searchQueue.submit(dnaSequence));
+
+                while (!pendingResults.isEmpty()
+                        && (pendingResults.peek().isDone() || pendingResults.size() > maxPendingResults)) {
+                    printCRISPRs(pendingSequences.poll(), pendingResults.poll().get(), outputs);
+                }
+
+                dnaSequence = (dnaSequence == first) ? second : fastaReader.next();
+            }
+
+            while (!pendingResults.isEmpty()) {
+                printCRISPRs(pendingSequences.poll(), pendingResults.poll().get(), outputs);
+            }
+        } finally {
+            searchQueue.shutdown();
+        }
+    }
+
+    /**
+     * Scans all files of batchInput with one pool of numThreads threads.
+     * */
+    private static void scanBatch() {
+        try {
+            Vector<Path> inputFiles = BatchScanner.listInputFiles(Paths.get(batchInput));
+            if (inputFiles.isEmpty()) {
+                System.out.println("No fasta files found in " + batchInput + ". Exiting.");
+                return;
+            }
+            BatchScanner batchScanner = new BatchScanner(CRISPRArraysFinder::newSearchEngine, outputFormat,
+                    Paths.get(outputDirectory), numThreads);
+            batchScanner.setSequenceCache(sequenceCache);
+            batchScanner.run(inputFiles);
+        }
+        catch (IOException ex) {
+            System.out.println("Exception while reading batch " + batchInput + ".");
+            System.out.println(ex);
+        }
+        catch (InterruptedException | ExecutionException ex) {
+            System.out.println("Exception while searching CRISPR arrays.");
+            System.out.println(ex);
+        }
+    }
+
+    /**
+     * Scans sequenceFile with every parameter set of sweepGrid, sharing one search of repeats between them.
+     * */
+    private static void sweepParameters() {
+        try {
+            Vector<ParameterSweep.ParameterSet> parameterSets = ParameterSweep.readGrid(Paths.get(sweepGrid),
+                    new ParameterSweep.ParameterSet(minNumberRepeats, minRepeatLength, maxRepeatLength, minSpacerLength, maxSpacerLength));
+            if (parameterSets.isEmpty()) {
+                System.out.println("No parameter sets found in " + sweepGrid + ". Exiting.");
+                return;
+            }
+            ParameterSweep parameterSweep = new ParameterSweep(CRISPRArraysFinder::newSearchEngine, parameterSets,
+                    outputFormat, Paths.get(outputDirectory), numThreads);
+            parameterSweep.setSequenceCache(sequenceCache);
+            parameterSweep.run(Paths.get(sequenceFile));
+        }
+        catch (IllegalArgumentException ex) {
+            System.out.println(ex.getMessage() + ". Exiting.");
+        }
+        catch (IOException | UncheckedIOException ex) {
+            System.out.println("Exception while sweeping parameters over " + sequenceFile + ".");
+            System.out.println(ex);
+        }
+        catch (InterruptedException | ExecutionException ex) {
+            System.out.println("Exception while searching CRISPR arrays.");
+            System.out.println(ex);
+        }
+    }
+
+    /**
+     * Starts the scan server with numThreads workers. It runs until the JVM is stopped.
+     * */
+    private static void startServer() {
+        try {
+            int capacity = (queueCapacity >= 0) ? queueCapacity : 2 * numThreads;
+            CRISPRScanServer server = new CRISPRScanServer(CRISPRArraysFinder::newSearchEngine, outputFormat,
+                    serverPort, numThreads, capacity);
+            server.setSequenceCache(sequenceCache);
+            Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+            server.start();
+            System.out.println("Listening on http://127.0.0.1:" + server.getPort() + "/scan with " + numThreads
+                    + " workers and a queue of " + capacity + " jobs.");
+        }
+        catch (IOException ex) {
+            System.out.println("Exception while starting server on port " + serverPort + ".");
+            System.out.println(ex);
+        }
+    }
+
+    /**
+     * Keeps the cache under its size, suffix arrays saved by the scan included.
+     * */
+    private static void evictCache() {
+        if (sequenceCache == null) {
+            return;
+        }
+        try {
+            sequenceCache.evict();
+        } catch (IOException ex) {
+            System.out.println("Exception while evicting from sequence cache " + cacheDirectory + ".");
+            System.out.println(ex);
+        }
+    }
+
+    public static void main(String[] args) {
+
+        if (!parseArgs(args)) {
+            return;
+        }
+
+        if (!cacheDirectory.isEmpty()) {
+            sequenceCache = new SequenceCache(Paths.get(cacheDirectory), cacheSizeMB << 20);
+        }
+
+        if (serverPort >= 0) {
+            startServer();
+            return;
+        }
+
+        if (!statisticsFile.isEmpty()) {
+            statistics = new ScanStatistics();
+        }
+
+        if (!sweepGrid.isEmpty()) {
+            sweepParameters();
+            evictCache();
+            if (statistics != null) {
+                reportStatistics();
+            }
+            return;
+        }
+
+        if (!batchInput.isEmpty()) {
+            scanBatch();
+            evictCache();
+            if (statistics != null) {
+                reportStatistics();
+            }
+            return;
+        }
+
+        Vector<CRISPRArrayWriter> outputs = openOutputs();
+        try (FastaReader fastaReader = new FastaReader(sequenceFile)) {
+            fastaReader.setCache(sequenceCache);
+            DNASequence first = fastaReader.next();
+            if (first == null) {
+                System.out.println("Not a correct fasta file. Exiting.");
+                return;
+            }
+
+            DNASequence second = fastaReader.next();
+            if (second == null) {
+                // a single record is scanned in parallel chunks, arrays are written as they are found
+                streamCRISPRs(first, outputs);
+            } else {
+                scanRecords(fastaReader, first, second, outputs);
+            }
+            evictCache();
+
+            if (statistics != null) {
+                // printed with the statistics only, so it does not mix into arrays written to stdout
+                System.out.printf("Read %.1f MB in %.3f s (%.1f MB/s).%n", fastaReader.getBytesRead() / 1e6,
+                        fastaReader.getReadTimeNanos() / 1e9, fastaReader.getThroughput());
+                statistics.bytesRead.add(fastaReader.getBytesRead());
+                statistics.readNanos.add(fastaReader.getReadTimeNanos());
+                reportStatistics();
+            }
+        }
+        catch (IOException ex) {
+            System.out.println("Exception while reading from file " + sequenceFile + ".");
+            System.out.println(ex);
+        }
+        catch (InterruptedException | ExecutionException ex) {
+            System.out.println("Exception while searching CRISPR arrays.");
+            System.out.println(ex);
+        }
+        catch (UncheckedIOException ex) {
+            System.out.println("Exception while writing output.");
+            System.out.println(ex.getCause());
+        }
+        finally {
+            // closing standard output is harmless, nothing is printed after this
+            for (CRISPRArrayWriter output : outputs) {
+                try {
+                    output.close();
+                } catch (IOException ex) {
+                    System.out.println(ex);
+                }
+            }
+        }
+    }
+}
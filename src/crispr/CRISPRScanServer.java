@@ -0,0 +1,221 @@
+package crispr;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Long-running scan server listening on a local HTTP port, so a job costs the scan only and not JVM startup and JIT warm-up.
+ * <pre>
+ * POST /scan?format=tsv             scans the fasta file in the request body
+ * POST /scan?path=/data/genome.fa   scans a local fasta file
+ * GET  /status                      reports the queue
+ * </pre>
+ * Jobs run on a fixed pool of workers. At most queueCapacity jobs wait for a free worker,
+ * a job arriving while the queue is full is refused at once with 503 and a Retry-After header,
+ * before its upload is read.
+ * */
+public class CRISPRScanServer {
+    private static final String RETRY_AFTER_SECONDS = "1";
+
+    private final Function<DNASequence, CRISPRSearchEngine> newSearchEngine;
+    private final CRISPRArrayWriter.Format defaultFormat;
+    private final int numWorkers;
+    private final int numJobSlots;
+    private final Semaphore jobSlots;
+    private final ExecutorService workers;
+    private final HttpServer httpServer;
+    // null if sequences are not cached
+    private SequenceCache sequenceCache;
+
+    private final AtomicLong numCompletedJobs = new AtomicLong();
+    private final AtomicLong numFailedJobs = new AtomicLong();
+    private final AtomicLong numRejectedJobs = new AtomicLong();
+
+    /**
+     * Binds the server to the port of the loopback address. Call start to accept jobs.
+     * @param newSearchEngine creates the search engine for a sequence
+     * @param defaultFormat output format of jobs which do not ask for one
+     * @param numWorkers number of jobs scanned at the same time
+     * @param queueCapacity number of jobs which may wait for a free worker
+     * */
+    public CRISPRScanServer(Function<DNASequence, CRISPRSearchEngine> newSearchEngine, CRISPRArrayWriter.Format defaultFormat,
+                            int port, int numWorkers, int queueCapacity) throws IOException {
+        this.newSearchEngine = newSearchEngine;
+        this.defaultFormat = defaultFormat;
+        this.numWorkers = numWorkers;
+        this.numJobSlots = numWorkers + queueCapacity;
+        this.jobSlots = new Semaphore(numJobSlots);
+        this.workers = Executors.newFixedThreadPool(numWorkers);
+        this.httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        httpServer.createContext("/scan", this::handleScan);
+        httpServer.createContext("/status", this::handleStatus);
+        // handlers only read uploads and wait for workers, their number is bounded by jobSlots
+        httpServer.setExecutor(Executors.newCachedThreadPool());
+    }
+
+    /**
+     * Makes jobs scanning a local file load its sequences from the cache, or cache them. Uploads are not cached.
+     * */
+    public void setSequenceCache(SequenceCache sequenceCache) {
+        this.sequenceCache = sequenceCache;
+    }
+
+    public void start() {
+        httpServer.start();
+    }
+
+    /**
+     * @return the port the server listens on
+     * */
+    public int getPort() {
+        return httpServer.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting jobs, lets running jobs finish and stops the workers.
+     * */
+    public void stop() {
+        httpServer.stop(1);
+        workers.shutdown();
+    }
+
+    private void handleScan(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                sendText(exchange, 405, "Use POST.\n");
+                return;
+            }
+            HashMap<String, String> parameters = parseQuery(exchange.getRequestURI().getRawQuery());
+            CRISPRArrayWriter.Format format = defaultFormat;
+            if (parameters.containsKey("format")) {
+                format = CRISPRArrayWriter.getFormat(parameters.get("format"));
+                if (format == null) {
+                    sendText(exchange, 400, "Unknown output format " + parameters.get("format") + ".\n");
+                    return;
+                }
+            }
+            String path = parameters.get("path");
+            if (path != null && !Files.isReadable(Paths.get(path))) {
+                sendText(exchange, 404, "Can not read file " + path + ".\n");
+                return;
+            }
+
+            if (!jobSlots.tryAcquire()) {
+                numRejectedJobs.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", RETRY_AFTER_SECONDS);
+                sendText(exchange, 503, "Queue is full, retry later.\n");
+                return;
+            }
+            try {
+                byte[] upload = (path == null) ? exchange.getRequestBody().readAllBytes() : null;
+                CRISPRArrayWriter.Format jobFormat = format;
+                Future<byte[]> job = workers.submit(() -> {
+                    FastaReader fastaReader = (upload != null)
+                            ? new FastaReader(new ByteArrayInputStream(upload)) : new FastaReader(path);
+                    fastaReader.setCache(sequenceCache);
+                    return scan(fastaReader, jobFormat);
+                });
+
+                byte[] result = job.get();
+                if (result == null) {
+                    numFailedJobs.incrementAndGet();
+                    sendText(exchange, 400, "Not a correct fasta file.\n");
+                    return;
+                }
+                numCompletedJobs.incrementAndGet();
+                exchange.getResponseHeaders().set("Content-Type",
+                        (jobFormat == CRISPRArrayWriter.Format.BINARY) ? "application/octet-stream" : "text/plain; charset=utf-8");
+                send(exchange, 200, result);
+            } catch (InterruptedException | ExecutionException ex) {
+                numFailedJobs.incrementAndGet();
+                sendText(exchange, 500, "Exception while searching CRISPR arrays: " + ex + "\n");
+            } finally {
+                jobSlots.release();
+            }
+        }
+    }
+
+    /**
+     * Scans all records read by fastaReader.
+     * @return the arrays in the given format, or null if the input is not a correct fasta file
+     * */
+    private byte[] scan(FastaReader fastaReader, CRISPRArrayWriter.Format format) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (fastaReader) {
+            CRISPRArrayWriter writer = CRISPRArrayWriter.create(format, Channels.newChannel(output), false);
+            DNASequence dnaSequence = fastaReader.next();
+            if (dnaSequence == null) {
+                return null;
+            }
+            for (; dnaSequence != null; dnaSequence = fastaReader.next()) {
+                writer.beginSequence(dnaSequence);
+                newSearchEngine.apply(dnaSequence).findCRISPRs(writer);
+                writer.endSequence();
+            }
+            writer.close();
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        return output.toByteArray();
+    }
+
+    private void handleStatus(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            int freeSlots = jobSlots.availablePermits();
+            sendText(exchange, 200, "workers " + numWorkers + "\n"
+                    + "jobs " + (numJobSlots - freeSlots) + "\n"
+                    + "free_slots " + freeSlots + "\n"
+                    + "completed " + numCompletedJobs.get() + "\n"
+                    + "failed " + numFailedJobs.get() + "\n"
+                    + "rejected " + numRejectedJobs.get() + "\n");
+        }
+    }
+
+    private static HashMap<String, String> parseQuery(String query) {
+        HashMap<String, String> parameters = new HashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+        for (String parameter : query.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(parameter.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+
+    private static void sendText(HttpExchange exchange, int status, String text) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        send(exchange, status, text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(body);
+        }
+    }
+}
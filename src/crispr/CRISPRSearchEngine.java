@@ -0,0 +1,1146 @@
+package crispr;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+public class CRISPRSearchEngine {
+    private DNASequence dnaSequence;
+    private SearchMethod searchMethod = SearchMethod.BOYER_MOORE;
+    private KmerIndex kmerIndex;
+    private IntArray nextOccurrences;
+    // directory of saved suffix array indices, null if they are not saved
+    private Path indexDirectory;
+    // null if statistics are not collected
+    private ScanStatistics statistics;
+    private boolean scanBothStrands;
+    private int maxMismatches;
+    private boolean useVectorKernels;
+    // seeds whose search window is all low-complexity are skipped, NaN if nothing is masked
+    private double maskThreshold = Double.NaN;
+    private LowComplexityMask lowComplexityMask;
+    // positions worth searching found by a wider engine, null if every position is searched
+    private ExactRepeatSeeds seeds;
+    // longer sequences are scanned in windows of this length (see scanInWindows)
+    private int maxWindowLength = DEFAULT_MAX_WINDOW_LENGTH;
+
+    private int minNumberRepeats;
+    private int minRepeatLength;
+    private int maxRepeatLength;
+    private int searchWindowLength;
+    private int minSpacerLength;
+    private int maxSpacerLength;
+
+    private static final int SCAN_RANGE = 24;
+    private static final double SIMILARITY_THRESHOLD = 0.75;
+    private static final double SPACER_TO_SPACER_MAX_SIMILARITY = 0.62;
+
+
+    private static final int SPACER_TO_SPACER_LENGTH_DIFF = 12;
+    private static final int SPACER_TO_REPEAT_LENGTH_DIFF = 30;
+
+    // Chunks are made several times smaller than sequence / numThreads so that rescanning
+    // a chunk in another phase (see findCRISPRs(int)) costs little.
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final int MIN_CHUNK_LENGTH = 1 << 16;
+    // windows are int-indexed, so records longer than 2^31 bases are scanned in windows
+    private static final int DEFAULT_MAX_WINDOW_LENGTH = 1 << 30;
+    // arrays found less than this from the end of a window are found again by the next window
+    private static final int MAX_WINDOW_MARGIN = 1 << 20;
+
+    /**
+     * How repeats of the search window are found.
+     * BOYER_MOORE searches the window downstream at every scan position,
+     * KMER_INDEX builds an index of all search window k-mers once and follows it.
+     * SUFFIX_ARRAY builds a suffix array once, which can be saved and reused with any parameters,
+     * and follows the exact repeats of the search window derived from it.
+     * */
+    public enum SearchMethod {
+        BOYER_MOORE,
+        KMER_INDEX,
+        SUFFIX_ARRAY
+    }
+
+    CRISPRSearchEngine(DNASequence dnaSequence, int minNumberRepeats, int minRepeatLength,
+                       int maxRepeatLength, int searchWindowLength, int minSpacerLength, int maxSpacerLength) {
+        this.dnaSequence = dnaSequence;
+        this.minNumberRepeats = minNumberRepeats;
+        this.minRepeatLength = minRepeatLength;
+        this.maxRepeatLength = maxRepeatLength;
+        this.searchWindowLength = searchWindowLength;
+        this.minSpacerLength = minSpacerLength;
+        this.maxSpacerLength = maxSpacerLength;
+    }
+
+    public void setSearchMethod(SearchMethod searchMethod) {
+        this.searchMethod = searchMethod;
+    }
+
+    /**
+     * Makes the SUFFIX_ARRAY method load suffix arrays from the directory, and save them there once built.
+     * */
+    public void setIndexDirectory(Path indexDirectory) {
+        this.indexDirectory = indexDirectory;
+    }
+
+    /**
+     * Lets repeats of the search window differ from it in up to maxMismatches bases.
+     * Searching with mismatches does not use the k-mer index.
+     * */
+    public void setMaxMismatches(int maxMismatches) {
+        this.maxMismatches = maxMismatches;
+    }
+
+    /**
+     * Makes Boyer-Moore searches and column consensus use the Vector API kernels, if the module is available
+     * (see VectorKernels). Results do not change.
+     * */
+    public void setUseVectorKernels(boolean useVectorKernels) {
+        this.useVectorKernels = useVectorKernels;
+    }
+
+    /**
+     * Makes the scan skip positions whose search window lies in a low-complexity region (see LowComplexityMask):
+     * poly-N gaps, homopolymers and microsatellites, where almost every window repeats downstream and gives
+     * a candidate which is rejected. Arrays seeded only from such windows are not found.
+     * @param maskThreshold DUST score above which regions are masked, NaN turns masking off
+     * */
+    public void setMaskThreshold(double maskThreshold) {
+        this.maskThreshold = maskThreshold;
+    }
+
+    /**
+     * Makes the scan search repeats only at the seeded positions, which a sweep finds once for all its engines
+     * (see findSeeds). Results do not change. The seeds leave out masked positions, so the mask is not used,
+     * and neither are the k-mer and suffix array indices.
+     * The reverse strand, if scanned, is searched at every position.
+     * @param seeds seeds found by an engine of the same sequence, search window and mismatches, with repeat and spacer
+     *              ranges covering this engine's, null turns seeding off
+     * */
+    public void setSeeds(ExactRepeatSeeds seeds) {
+        if (seeds != null && !seeds.covers(dnaSequence, searchWindowLength, getMinRepeatDistance(), getMaxRepeatDistance())) {
+            throw new IllegalArgumentException("Seeds do not cover the search window and ranges of the engine");
+        }
+        this.seeds = seeds;
+    }
+
+    /**
+     * Makes sequences longer than maxWindowLength be scanned in overlapping windows of it. Results do not change,
+     * unless an array is longer than a window (see scanInWindows).
+     * */
+    void setMaxWindowLength(int maxWindowLength) {
+        if (maxWindowLength - getWindowMargin(maxWindowLength) <= getReach()) {
+            throw new IllegalArgumentException("Window length " + maxWindowLength + " is too short for the search ranges");
+        }
+        this.maxWindowLength = maxWindowLength;
+    }
+
+    private static int getWindowMargin(int maxWindowLength) {
+        return min(MAX_WINDOW_MARGIN, maxWindowLength / 4);
+    }
+
+    /**
+     * If set, the reverse complement of the sequence is scanned too and arrays report the strand they are found on.
+     * */
+    public void setScanBothStrands(boolean scanBothStrands) {
+        this.scanBothStrands = scanBothStrands;
+    }
+
+    /**
+     * Makes the engine count its work in the given statistics, null turns counting off.
+     * */
+    public void setStatistics(ScanStatistics statistics) {
+        this.statistics = statistics;
+    }
+
+    /**
+     * The k-mer index is built on first use and shared by all scanning threads.
+     * */
+    private synchronized KmerIndex getKmerIndex() {
+        if (kmerIndex == null) {
+            kmerIndex = new KmerIndex(dnaSequence, searchWindowLength);
+        }
+        return kmerIndex;
+    }
+
+    /**
+     * The mask is shared by all scanning threads, which build the blocks of it they scan.
+     * @return the mask, or null if masking is off
+     * */
+    private synchronized LowComplexityMask getLowComplexityMask() {
+        if (lowComplexityMask == null && !Double.isNaN(maskThreshold)) {
+            lowComplexityMask = new LowComplexityMask(dnaSequence, maskThreshold);
+        }
+        return lowComplexityMask;
+    }
+
+    /**
+     * Links to next occurrences of search windows are made on first use and shared by all scanning threads.
+     * */
+    private synchronized IntArray getNextOccurrences() {
+        if (nextOccurrences == null) {
+            nextOccurrences = loadSuffixArrayIndex().getNextOccurrences(searchWindowLength);
+        }
+        return nextOccurrences;
+    }
+
+    private SuffixArrayIndex loadSuffixArrayIndex() {
+        if (indexDirectory == null) {
+            return SuffixArrayIndex.build(dnaSequence);
+        }
+        Path indexFile = indexDirectory.resolve(SuffixArrayIndex.getFileName(dnaSequence));
+        try {
+            SuffixArrayIndex index = SuffixArrayIndex.load(indexFile, dnaSequence);
+            if (index != null) {
+                return index;
+            }
+            index = SuffixArrayIndex.build(dnaSequence);
+            Files.createDirectories(indexDirectory);
+            index.save(indexFile);
+            return index;
+        } catch (IOException ex) {
+            System.out.println("Exception while using suffix array index " + indexFile + ".");
+            System.out.println(ex);
+            return SuffixArrayIndex.build(dnaSequence);
+        }
+    }
+
+    PatternSearcher newPatternSearcher() {
+        if (maxMismatches > 0) {
+            return new MismatchSearcher(dnaSequence, searchWindowLength, maxMismatches);
+        }
+        // seeded scans search at few positions, an index would not pay for its building
+        if (searchMethod == SearchMethod.KMER_INDEX && seeds == null) {
+            return new KmerIndexSearcher(dnaSequence, getKmerIndex());
+        }
+        if (searchMethod == SearchMethod.SUFFIX_ARRAY && seeds == null) {
+            return new SuffixArraySearcher(getNextOccurrences(), searchWindowLength);
+        }
+        if (useVectorKernels) {
+            return VectorKernels.newBoyerMooreSearcher(dnaSequence, searchWindowLength);
+        }
+        return new BoyerMooreSearcher(dnaSequence, searchWindowLength);
+    }
+
+    /**
+     * @return column consensus for the extensions of one scanning thread, which reuses it for every candidate
+     * */
+    ColumnConsensus newColumnConsensus() {
+        if (useVectorKernels) {
+            return VectorKernels.newColumnConsensus(dnaSequence, SIMILARITY_THRESHOLD);
+        }
+        return new ColumnConsensus(dnaSequence, SIMILARITY_THRESHOLD);
+    }
+
+
+    /**
+     * Finds more repeats of pattern by scanning to right
+     * @precondition crisprArray has at least two repeats
+     * */
+    private void scanRight(CRISPRArray crisprArray, PatternSearcher pattern) {
+        int lastRepeatIndex = crisprArray.getRepeatPosition(crisprArray.getNumRepeats() - 1);
+        int secondToLastRepeatIndex = crisprArray.getRepeatPosition(crisprArray.getNumRepeats() - 2);
+
+        while(true) {
+            int repeatSpacing = lastRepeatIndex - secondToLastRepeatIndex;
+            int beginSearch = max(lastRepeatIndex + repeatSpacing - SCAN_RANGE, lastRepeatIndex + pattern.patternLength() + minSpacerLength);
+            int endSearch = min(lastRepeatIndex + repeatSpacing + pattern.patternLength() + SCAN_RANGE + 1, dnaSequence.length());
+
+            if (beginSearch > dnaSequence.length() - 1 || beginSearch >= endSearch) {
+                return;
+            }
+
+            if (statistics != null) {
+                statistics.patternSearches.increment();
+            }
+            int repeatIndex = pattern.search(beginSearch, endSearch);
+            if (repeatIndex < 0) {
+                // Pattern not found
+                return;
+            }
+
+            secondToLastRepeatIndex = lastRepeatIndex;
+            lastRepeatIndex = repeatIndex;
+
+            crisprArray.addRepeat(lastRepeatIndex);
+        }
+    }
+
+    /**
+     * Finds exact repeats of the pattern starting at beginIndex.
+     * @return a CRISPRArray object populated with exact repeats, or null if the pattern does not repeat.
+     * */
+    CRISPRArray findExactRepeats(int beginIndex, PatternSearcher pattern) {
+        // find sequence matching pattern using the pattern searcher
+        // scan to right to find more matches
+
+        int repeatIndex = findSecondRepeat(beginIndex, pattern);
+        if (repeatIndex < 0) {
+            // Pattern not found
+            return null;
+        }
+
+        CRISPRArray crisprArray = new CRISPRArray(dnaSequence, beginIndex, repeatIndex, pattern.patternLength());
+
+        scanRight(crisprArray, pattern);
+        return crisprArray;
+    }
+
+    /**
+     * Finds the first repeat of the pattern set at beginIndex, a spacer and a repeat downstream.
+     * @return index of the repeat, or -1 if the pattern does not repeat there
+     * */
+    private int findSecondRepeat(int beginIndex, PatternSearcher pattern) {
+        int beginSearch = beginIndex + getMinRepeatDistance();
+        int endSearch = min(beginIndex + getMaxRepeatDistance() + searchWindowLength + 1, dnaSequence.length());
+
+        if (beginSearch > dnaSequence.length() - 1 || beginSearch >= endSearch) {
+            return -1;
+        }
+
+        if (statistics != null) {
+            statistics.patternSearches.increment();
+        }
+        return pattern.search(beginSearch, endSearch);
+    }
+
+    private int getMinRepeatDistance() {
+        return minSpacerLength + minRepeatLength;
+    }
+
+    private int getMaxRepeatDistance() {
+        return maxSpacerLength + maxRepeatLength;
+    }
+
+    /**
+     * Checks if nucleotides in extended position do not differ more than a SIMILARITY_THRESHOLD
+     * @param extensionLength is positive if extending to right, and negative if extending to left.
+     * */
+    boolean canExtendTo(CRISPRArray crisprArray, int extensionLength, ColumnConsensus columnConsensus) {
+        return columnConsensus.isConserved(crisprArray, extensionLength);
+    }
+
+    /**
+     * Extends crispr repeats to right. Checks if nucleotides do not differ more than SIMILARITY_THRESHOLD
+     * */
+    void extendRight(CRISPRArray crisprArray, ColumnConsensus columnConsensus) {
+        assert crisprArray != null;
+
+        int extensionLength = crisprArray.getRepeatLength();
+        int shortestRepeatSpacing = crisprArray.getShortestRepeatSpacing();
+        int maxExtensionLength = shortestRepeatSpacing - minSpacerLength;
+        int lastRepeatIndex = crisprArray.getRepeatPosition(crisprArray.getNumRepeats() - 1);
+
+        while (extensionLength <= maxExtensionLength && lastRepeatIndex + extensionLength < dnaSequence.length()) {
+            // extend to right, several columns at a time
+            int numColumns = min(ColumnConsensus.MAX_COLUMNS, min(maxExtensionLength - extensionLength + 1,
+                    dnaSequence.length() - (lastRepeatIndex + extensionLength)));
+            int numConservedColumns = columnConsensus.countConservedColumns(crisprArray, extensionLength, numColumns, 1);
+            extensionLength += numConservedColumns;
+            if (numConservedColumns < numColumns) {
+                break;
+            }
+        }
+        --extensionLength;
+        crisprArray.extendRight(extensionLength - crisprArray.getRepeatLength() + 1);
+    }
+
+    /**
+     * Extends crispr repeats to left. Checks if nucleotides do not differ more than SIMILARITY_THRESHOLD
+     * */
+    void extendLeft(CRISPRArray crisprArray, ColumnConsensus columnConsensus) {
+        assert crisprArray != null;
+
+        int extensionLength = 0;
+        int shortestRepeatSpacing = crisprArray.getShortestRepeatSpacing();
+        int maxExtensionLength = shortestRepeatSpacing - minSpacerLength - crisprArray.getRepeatLength() + 1;
+        int firstRepeatIndex = crisprArray.getRepeatPosition(0);
+
+        while (extensionLength <= maxExtensionLength && firstRepeatIndex - extensionLength >= 0) {
+            // extend to left, several columns at a time
+            int numColumns = min(ColumnConsensus.MAX_COLUMNS, min(maxExtensionLength - extensionLength + 1,
+                    firstRepeatIndex - extensionLength + 1));
+            int numConservedColumns = columnConsensus.countConservedColumns(crisprArray, -extensionLength, numColumns, -1);
+            extensionLength += numConservedColumns;
+            if (numConservedColumns < numColumns) {
+                break;
+            }
+        }
+        --extensionLength;
+        crisprArray.extendLeft(extensionLength);
+    }
+
+    /**
+     * Extends exact repeats to left and right
+     * */
+    private void extendExactRepeats(CRISPRArray crisprArray, ColumnConsensus columnConsensus) {
+        assert crisprArray != null;
+        // expand repeats if new nucleotides do not differ more than a SIMILARITY_THRESHOLD
+        extendRight(crisprArray, columnConsensus);
+        extendLeft(crisprArray, columnConsensus);
+    }
+
+    private boolean hasValidNumberOfRepeats(CRISPRArray crisprArray) {
+        return crisprArray.getNumRepeats() >= minNumberRepeats;
+    }
+
+    private boolean hasValidRepeatLength(CRISPRArray crisprArray) {
+        return crisprArray.getRepeatLength() >= minRepeatLength
+                && crisprArray.getRepeatLength() <= maxRepeatLength;
+    }
+
+
+    /**
+     * Validates given CRISPR array
+     * 1. Checks if repeats are in range of given min and max length
+     * 2. Checks if spacers are in range of given min and max length
+     * 3. Checks if spacers differ from each other (uses Levenshtein Distance)
+     * 4. Checks if spacers differ from repeats (uses Levenshtein Distance)
+     * 5. Checks that Spacers are similar sized
+     * */
+    private boolean isValidCRISPRArray(CRISPRArray crisprArray) {
+        assert crisprArray != null;
+
+        // statistics count the rule which rejects the array
+        if (!hasValidNumberOfRepeats(crisprArray)) {
+            if (statistics != null) {
+                statistics.rejectedByRepeatCount.increment();
+            }
+            return false;
+        }
+        if (!hasValidRepeatLength(crisprArray)) {
+            if (statistics != null) {
+                statistics.rejectedByRepeatLength.increment();
+            }
+            return false;
+        }
+        if (!crisprArray.hasNonRepeatingSpacers(SPACER_TO_SPACER_MAX_SIMILARITY, statistics)) {
+            if (statistics != null) {
+                statistics.rejectedBySpacerSimilarity.increment();
+            }
+            return false;
+        }
+        if (!crisprArray.hasSimilarlySizedSpacers(SPACER_TO_SPACER_LENGTH_DIFF, SPACER_TO_REPEAT_LENGTH_DIFF)) {
+            if (statistics != null) {
+                statistics.rejectedBySpacerSize.increment();
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Distance between two consecutive scan positions when no CRISPR array is found.
+     * */
+    private int getSkips() {
+        int skips = minRepeatLength - (2 * searchWindowLength - 1);
+        if (skips < 1)
+            skips = 1;
+        return skips;
+    }
+
+    /**
+     * Scan positions are in [0, getScanLimit()).
+     * */
+    private int getScanLimit() {
+        return dnaSequence.length() - searchWindowLength;
+    }
+
+    /**
+     * Scans positions beginIndex, beginIndex + skips, ... below endIndex.
+     * After a valid CRISPR array is found the scan continues after its end, exactly as the serial scan does.
+     * Found arrays may reach beyond endIndex.
+     * @param sink receives found arrays, if null they are kept in the result
+     * */
+    private ScanResult scan(int beginIndex, int endIndex, CRISPRArraySink sink) {
+        // 1. select search window size sequence - pattern,
+        // 2. find matches to pattern,
+        // 3. extend found repeats
+        // 4. validate found CRISPR array
+        // 5. pass CRISPR array to the sink if it is valid
+
+        int skips = getSkips();
+        ScanResult result = new ScanResult(beginIndex, skips);
+        PatternSearcher pattern = newPatternSearcher();
+        ColumnConsensus columnConsensus = newColumnConsensus();
+        // seeds leave out masked positions already
+        LowComplexityMask mask = (seeds == null) ? getLowComplexityMask() : null;
+        // timing is per candidate only, positions without a candidate are too many to time
+        boolean isTimed = statistics != null;
+        long startTime = isTimed ? System.nanoTime() : 0;
+        long numPositions = 0;
+        long numMaskedPositions = 0;
+        long numCandidates = 0;
+        long candidateNanos = 0;
+        int i;
+        for(i = beginIndex; i < endIndex; i += skips) {
+            if (seeds != null && !seeds.isSeed(i)) {
+                continue;
+            }
+            if (mask != null && mask.isMasked(i, i + searchWindowLength)) {
+                ++numMaskedPositions;
+                continue;
+            }
+            ++numPositions;
+            pattern.setPattern(i);
+            CRISPRArray crisprArray = findExactRepeats(i, pattern);
+            if (crisprArray != null) {
+                ++numCandidates;
+                long extensionStart = isTimed ? System.nanoTime() : 0;
+                extendExactRepeats(crisprArray, columnConsensus);
+                long validationStart = isTimed ? System.nanoTime() : 0;
+                boolean isValid = isValidCRISPRArray(crisprArray);
+                if (isTimed) {
+                    long validationEnd = System.nanoTime();
+                    statistics.extensionNanos.add(validationStart - extensionStart);
+                    statistics.validationNanos.add(validationEnd - validationStart);
+                    candidateNanos += validationEnd - extensionStart;
+                }
+                if (isValid) {
+                    if (sink != null) {
+                        long sinkStart = isTimed ? System.nanoTime() : 0;
+                        sink.accept(crisprArray);
+                        if (isTimed) {
+                            // the sink measures its own output time
+                            candidateNanos += System.nanoTime() - sinkStart;
+                        }
+                    } else {
+                        result.addCRISPRArray(i, crisprArray);
+                    }
+                    i = crisprArray.getEndIndex() + 1;
+                    result.addSegment(i + skips);
+                }
+            }
+        }
+        result.exitIndex = i;
+        if (isTimed) {
+            statistics.positionsVisited.add(numPositions);
+            statistics.positionsMasked.add(numMaskedPositions);
+            statistics.candidates.add(numCandidates);
+            statistics.seedingNanos.add(System.nanoTime() - startTime - candidateNanos);
+        }
+        return result;
+    }
+
+    /**
+     * Finds the positions whose search window repeats within this engine's repeat and spacer ranges,
+     * searching every position, in parallel chunks if numThreads > 1. Engines with narrower ranges
+     * scan only these positions (see setSeeds), so a sweep of many ranges searches the sequence once.
+     * Masked positions are not seeded.
+     * @param numThreads number of worker threads
+     * @return the seeds, or null if the sequence is scanned in windows, whose engines search every position
+     * */
+    public ExactRepeatSeeds findSeeds(int numThreads) {
+        if (isScannedInWindows()) {
+            return null;
+        }
+        ExactRepeatSeeds exactRepeatSeeds = new ExactRepeatSeeds(dnaSequence, searchWindowLength,
+                getMinRepeatDistance(), getMaxRepeatDistance());
+        int scanLimit = getScanLimit();
+        if (numThreads <= 1 || scanLimit <= MIN_CHUNK_LENGTH) {
+            seed(exactRepeatSeeds, 0, scanLimit);
+            return exactRepeatSeeds;
+        }
+
+        // chunks do not share words of the bitmap
+        int chunkLength = max(MIN_CHUNK_LENGTH, (scanLimit + numThreads * CHUNKS_PER_THREAD - 1) / (numThreads * CHUNKS_PER_THREAD));
+        chunkLength = (chunkLength + Long.SIZE - 1) / Long.SIZE * Long.SIZE;
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        try {
+            Vector<ForkJoinTask<?>> tasks = new Vector<>();
+            for (int chunkBegin = 0; chunkBegin < scanLimit; chunkBegin += chunkLength) {
+                int beginIndex = chunkBegin;
+                int endIndex = min(chunkBegin + chunkLength, scanLimit);
+                tasks.add(pool.submit(() -> seed(exactRepeatSeeds, beginIndex, endIndex)));
+            }
+            for (ForkJoinTask<?> task : tasks) {
+                task.join();
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return exactRepeatSeeds;
+    }
+
+    /**
+     * Seeds the positions of [beginIndex, endIndex) whose search window repeats.
+     * */
+    private void seed(ExactRepeatSeeds exactRepeatSeeds, int beginIndex, int endIndex) {
+        PatternSearcher pattern = newPatternSearcher();
+        LowComplexityMask mask = getLowComplexityMask();
+        long startTime = (statistics != null) ? System.nanoTime() : 0;
+        long numMaskedPositions = 0;
+        for (int i = beginIndex; i < endIndex; ++i) {
+            if (mask != null && mask.isMasked(i, i + searchWindowLength)) {
+                ++numMaskedPositions;
+                continue;
+            }
+            pattern.setPattern(i);
+            if (findSecondRepeat(i, pattern) >= 0) {
+                exactRepeatSeeds.set(i);
+            }
+        }
+        if (statistics != null) {
+            statistics.positionsVisited.add(endIndex - beginIndex - numMaskedPositions);
+            statistics.positionsMasked.add(numMaskedPositions);
+            statistics.seedingNanos.add(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Main function finding CRISPR arrays in DNA sequence
+     * @return vector of CRISPR arrays found in the sequence
+     * */
+    public Vector<CRISPRArray> findCRISPRs() {
+        Vector<CRISPRArray> crisprArrays = new Vector<>();
+        findCRISPRs(crisprArrays::add);
+        return crisprArrays;
+    }
+
+    /**
+     * Finds CRISPR arrays in DNA sequence and passes each of them to the sink as soon as it is validated.
+     * */
+    public void findCRISPRs(CRISPRArraySink sink) {
+        findCRISPRs(1, sink);
+    }
+
+    /**
+     * Finds CRISPR arrays scanning chunks of the sequence in parallel. The result is the same as of findCRISPRs().
+     * @param numThreads number of worker threads
+     * @return vector of CRISPR arrays found in the sequence
+     * */
+    public Vector<CRISPRArray> findCRISPRs(int numThreads) {
+        Vector<CRISPRArray> crisprArrays = new Vector<>();
+        findCRISPRs(numThreads, crisprArrays::add);
+        return crisprArrays;
+    }
+
+    /**
+     * Finds CRISPR arrays scanning chunks of the sequence in parallel. The result is the same as of findCRISPRs().
+     * <p>
+     * Each chunk scans its own positions but reads the sequence past its end, so arrays crossing a chunk
+     * boundary are found whole. Chunks are scanned in the serial scan's phase (position modulo skips)
+     * and stitched in order: an array found by the previous chunk may end inside the next one, in which case
+     * the next chunk's arrays found before that point are dropped. If the serial scan enters a chunk in
+     * another phase, the following chunks are rescanned in that phase.
+     * Arrays are passed to the sink, in order, as soon as their chunk is stitched.
+     * Sequences longer than the maximum window length, 2^30 bases, are scanned in windows (see scanInWindows).
+     * @param numThreads number of worker threads
+     * */
+    public void findCRISPRs(int numThreads, CRISPRArraySink sink) {
+        if (scanBothStrands) {
+            findCRISPRsOnBothStrands(numThreads, sink);
+            return;
+        }
+        scanForwardStrand(numThreads, sink);
+    }
+
+    private void scanForwardStrand(int numThreads, CRISPRArraySink sink) {
+        if (isScannedInWindows()) {
+            scanInWindows(numThreads, sink);
+        } else {
+            scanInChunks(0, getScanLimit(), numThreads, sink);
+        }
+    }
+
+    private boolean isScannedInWindows() {
+        return dnaSequence.totalLength() > maxWindowLength;
+    }
+
+    /**
+     * Scans a long sequence through windows of it, each scanned in chunks by an engine of its own,
+     * so the scan and its indices stay int-indexed while positions reported by the arrays are longs.
+     * Search and extension never see long coordinates. Seeds and rescanEdits do not work across windows,
+     * a sequence scanned in windows is searched at every position and rescanned whole.
+     * A window begins getReach() before the position where the serial scan enters it, and its scan stops
+     * a margin before its end, where the next window takes over from the position the serial scan visits next.
+     * The last array of a window is held back: if it reads up to the end of the window, it may be cut short there,
+     * so it is dropped and the next window takes over from a position the serial scan visits before the array,
+     * and finds it whole. Only an array longer than a window is cut, where the window ends.
+     * Arrays found in a window are reported with positions in the window plus its offset (see CRISPRArray.getStartPosition).
+     * */
+    private void scanInWindows(int numThreads, CRISPRArraySink sink) {
+        long totalLength = dnaSequence.totalLength();
+        long scanLimit = totalLength - searchWindowLength;
+        int margin = getWindowMargin(maxWindowLength);
+        int skips = getSkips();
+        long scanIndex = 0;
+        while (scanIndex < scanLimit) {
+            long windowBegin = max(0, scanIndex - getReach());
+            int windowLength = (int) min(maxWindowLength, totalLength - windowBegin);
+            CRISPRSearchEngine windowEngine = newEngine(dnaSequence.window(windowBegin, windowLength));
+            int beginIndex = (int) (scanIndex - windowBegin);
+            if (windowBegin + windowLength == totalLength) {
+                windowEngine.scanInChunks(beginIndex, windowEngine.getScanLimit(), numThreads, sink);
+                return;
+            }
+
+            // the last array found so far, and the position the serial scan visits after the one before it
+            CRISPRArray[] lastArray = new CRISPRArray[1];
+            int[] lastArrayScanBegin = {beginIndex};
+            int exitIndex = windowEngine.scanInChunks(beginIndex, windowLength - margin, numThreads, crisprArray -> {
+                if (lastArray[0] != null) {
+                    sink.accept(lastArray[0]);
+                    lastArrayScanBegin[0] = lastArray[0].getEndIndex() + 1 + skips;
+                }
+                lastArray[0] = crisprArray;
+            });
+            scanIndex = windowBegin + exitIndex;
+            if (lastArray[0] != null) {
+                // the serial scan found the array from a position at most getReach() left of it
+                int restartIndex = lastArrayScanBegin[0]
+                        + max(0, lastArray[0].getStartIndex() - getReach() - lastArrayScanBegin[0]) / skips * skips;
+                if (windowEngine.getReadEnd(lastArray[0]) < windowLength || restartIndex == beginIndex) {
+                    sink.accept(lastArray[0]);
+                } else {
+                    scanIndex = windowBegin + restartIndex;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return engine of another sequence, e.g. a window or the reverse strand of this one, with the same settings.
+     * Seeds and the strands to scan are not copied.
+     * */
+    private CRISPRSearchEngine newEngine(DNASequence otherSequence) {
+        CRISPRSearchEngine engine = new CRISPRSearchEngine(otherSequence, minNumberRepeats,
+                minRepeatLength, maxRepeatLength, searchWindowLength, minSpacerLength, maxSpacerLength);
+        engine.setSearchMethod(searchMethod);
+        engine.setStatistics(statistics);
+        engine.setMaxMismatches(maxMismatches);
+        engine.setUseVectorKernels(useVectorKernels);
+        engine.setMaskThreshold(maskThreshold);
+        engine.setIndexDirectory(indexDirectory);
+        engine.maxWindowLength = maxWindowLength;
+        return engine;
+    }
+
+    /**
+     * Scans positions beginIndex, beginIndex + skips, ... below endIndex in chunks on numThreads threads,
+     * see findCRISPRs(int, CRISPRArraySink).
+     * @return the position the serial scan would visit next, at least endIndex
+     * */
+    private int scanInChunks(int beginIndex, int endIndex, int numThreads, CRISPRArraySink sink) {
+        int scanLength = endIndex - beginIndex;
+        if (numThreads <= 1 || scanLength <= MIN_CHUNK_LENGTH) {
+            return scan(beginIndex, endIndex, sink).exitIndex;
+        }
+
+        int skips = getSkips();
+        int chunkLength = max(MIN_CHUNK_LENGTH, (scanLength + numThreads * CHUNKS_PER_THREAD - 1) / (numThreads * CHUNKS_PER_THREAD));
+        int numChunks = (scanLength + chunkLength - 1) / chunkLength;
+        ScanResult[][] chunkScans = new ScanResult[numChunks][skips];
+
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        try {
+            int index = beginIndex;
+            for (int chunk = 0; chunk < numChunks; ++chunk) {
+                int chunkBegin = beginIndex + chunk * chunkLength;
+                int chunkEnd = min(chunkBegin + chunkLength, endIndex);
+                if (index >= chunkEnd) {
+                    // the previous array covers the whole chunk
+                    continue;
+                }
+
+                int phase = index % skips;
+                if (chunkScans[chunk][phase] == null) {
+                    scanChunks(pool, chunkScans, chunk, phase, beginIndex, chunkLength, endIndex);
+                }
+
+                ScanResult chunkScan = chunkScans[chunk][phase];
+                if (!chunkScan.visits(index, chunkEnd)) {
+                    // an array found by the previous chunk ends past the first array of this chunk
+                    chunkScan = scan(index, chunkEnd, null);
+                }
+
+                chunkScan.passCRISPRArrays(index, Integer.MAX_VALUE, sink);
+                // stitched results are not needed any more
+                chunkScans[chunk] = null;
+                index = chunkScan.exitIndex;
+            }
+            return index;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Finds CRISPR arrays of this sequence, an edited version of a sequence whose arrays are known,
+     * scanning again only around the edits. The result is the same as of findCRISPRs().
+     * <p>
+     * Around each group of edits, the scan restarts from a position the previous scan visited at least
+     * getReach() before the edits, and before all positions whose candidate repeats run into the edits.
+     * Previous arrays are kept only if their last repeat is more than 2 * getReach() before the edits, and no candidate
+     * found from the positions before them reaches the edits: such a candidate may have more repeats than the array,
+     * and run into the edits when the array itself does not, so the rescan restarts before such arrays.
+     * It stops at the first position, at least getReach() after the edits, which the previous scan visited too:
+     * from there both scans read the same nucleotides, so the previous arrays are taken with shifted positions.
+     * The previous scan visited the positions after each array, in steps of skips, up to the start of the next array.
+     * If an edit changes the length by other than a multiple of skips, the two scans visit different positions
+     * until the next array both of them find, so the rescan runs up to that array.
+     * Candidates are checked for 2 * getReach() positions before the restart, ones found from farther away
+     * are assumed not to reach into the edits with their repeats.
+     * With both strands scanned, or a sequence scanned in windows, the whole sequence is scanned again.
+     * @param previousArrays arrays found by findCRISPRs() in the previous version of the sequence
+     * @param edits edits turning the previous version into this sequence, in previous version positions, not overlapping
+     * @return vector of CRISPR arrays found in the sequence
+     * */
+    public Vector<CRISPRArray> rescanEdits(Vector<CRISPRArray> previousArrays, Vector<SequenceEdit> edits) {
+        if (scanBothStrands || isScannedInWindows()) {
+            return findCRISPRs();
+        }
+        Vector<SequenceEdit> sortedEdits = new Vector<>(edits);
+        sortedEdits.sort(Comparator.comparingInt(SequenceEdit::getBeginIndex));
+        for (int i = 1; i < sortedEdits.size(); ++i) {
+            if (sortedEdits.get(i).getBeginIndex() < sortedEdits.get(i - 1).getEndIndex()) {
+                throw new IllegalArgumentException("Edits overlap at " + sortedEdits.get(i).getBeginIndex());
+            }
+        }
+
+        int skips = getSkips();
+        int reach = getReach();
+        int scanLimit = getScanLimit();
+        Vector<CRISPRArray> crisprArrays = new Vector<>();
+
+        // both scans are in step at syncIndex (a previous position), from where on the previous scan found
+        // the previous arrays from nextArray on, at positions moved by shift in this sequence
+        int syncIndex = 0;
+        int nextArray = 0;
+        int shift = 0;
+        int edit = 0;
+        while (edit < sortedEdits.size()) {
+            // 1. edits closer than twice the reach are rescanned together
+            int groupBegin = sortedEdits.get(edit).getBeginIndex();
+            int groupEnd = sortedEdits.get(edit).getEndIndex();
+            int groupShift = sortedEdits.get(edit).getLengthChange();
+            for (++edit; edit < sortedEdits.size() && sortedEdits.get(edit).getBeginIndex() < groupEnd + 2 * reach; ++edit) {
+                groupEnd = sortedEdits.get(edit).getEndIndex();
+                groupShift += sortedEdits.get(edit).getLengthChange();
+            }
+
+            // 2. keep the previous arrays which do not come within reach of the group, restart at a visited position before it
+            int restartBound = groupBegin - reach;
+            int keptFrom = nextArray;
+            int segmentBegin = syncIndex;
+            while (nextArray < previousArrays.size()
+                    && getLastRepeatPosition(previousArrays.get(nextArray)) + reach < restartBound
+                    && previousArrays.get(nextArray).getEndIndex() + 1 + skips <= restartBound
+                    && getReadEnd(previousArrays.get(nextArray)) < groupBegin) {
+                CRISPRArray previousArray = previousArrays.get(nextArray++);
+                crisprArrays.add(previousArray.shiftedTo(dnaSequence, shift));
+                segmentBegin = previousArray.getEndIndex() + 1 + skips;
+            }
+            int segmentEnd = (nextArray < previousArrays.size()) ? previousArrays.get(nextArray).getStartIndex() : Integer.MAX_VALUE;
+            int restartIndex = segmentBegin + max(0, (min(restartBound, segmentEnd) - segmentBegin) / skips) * skips;
+            restartIndex = findRestartIndex(previousArrays, keptFrom, nextArray, syncIndex, restartIndex, groupBegin + shift, shift);
+            while (nextArray > keptFrom && previousArrays.get(nextArray - 1).getEndIndex() + 1 + skips > restartIndex) {
+                // a candidate found before the array reaches the group
+                --nextArray;
+                crisprArrays.remove(crisprArrays.size() - 1);
+            }
+
+            // 3. scan in growing blocks until both scans are in step again after the group
+            int groupShiftedBy = shift + groupShift;
+            int syncBound = groupEnd + groupShiftedBy + reach;
+            int index = restartIndex + shift;
+            int blockEnd = max(index, syncBound);
+            int blockLength = 4 * reach;
+            int newSyncIndex = -1;
+            while (newSyncIndex < 0 && index < scanLimit) {
+                blockEnd = (int) min((long) blockEnd + blockLength, scanLimit);
+                blockLength *= 2;
+                ScanResult scanResult = scan(index, blockEnd, null);
+                newSyncIndex = findSyncIndex(scanResult, blockEnd, previousArrays, nextArray, restartIndex, syncBound, groupShiftedBy);
+                scanResult.passCRISPRArrays(index, (newSyncIndex >= 0) ? newSyncIndex : Integer.MAX_VALUE, crisprArrays::add);
+                index = scanResult.exitIndex;
+            }
+            if (newSyncIndex < 0) {
+                // the rest of the sequence is scanned
+                return crisprArrays;
+            }
+
+            shift = groupShiftedBy;
+            syncIndex = newSyncIndex - shift;
+            while (nextArray < previousArrays.size() && previousArrays.get(nextArray).getEndIndex() + 1 + skips <= syncIndex) {
+                ++nextArray;
+            }
+        }
+
+        for (; nextArray < previousArrays.size(); ++nextArray) {
+            crisprArrays.add(previousArrays.get(nextArray).shiftedTo(dnaSequence, shift));
+        }
+        return crisprArrays;
+    }
+
+    /**
+     * @return how far an array reads left of its scan position, or a scan position right of itself
+     * before it finds a second repeat. Whether a position is masked depends on a window around it.
+     * */
+    private int getReach() {
+        int maskReach = Double.isNaN(maskThreshold) ? 0 : LowComplexityMask.WINDOW_LENGTH;
+        return maxRepeatLength + maxSpacerLength + 2 * searchWindowLength + maskReach;
+    }
+
+    private static int getLastRepeatPosition(CRISPRArray crisprArray) {
+        return crisprArray.getRepeatPosition(crisprArray.getNumRepeats() - 1);
+    }
+
+    /**
+     * @return bound of the positions read to find the array, whose last search in scanRight ends a spacing after it
+     * */
+    private int getReadEnd(CRISPRArray crisprArray) {
+        int numRepeats = crisprArray.getNumRepeats();
+        int lastRepeatSpacing = crisprArray.getRepeatPosition(numRepeats - 1) - crisprArray.getRepeatPosition(numRepeats - 2);
+        return crisprArray.getEndIndex() + lastRepeatSpacing + searchWindowLength + SCAN_RANGE + 1;
+    }
+
+    /**
+     * Moves the restart of a rescan left, past the positions whose repeats reach the edits.
+     * Nucleotides before the edits are the same in both versions, so a candidate found from a position
+     * on this sequence reads the same as in the previous scan, until it reaches the edits.
+     * Positions are checked from restartIndex down to syncIndex, until a stretch of
+     * 2 * getReach() positions has no candidate reaching editIndex. The check goes on past the previous arrays
+     * firstArray to nextArray - 1, which are kept up to here, and a candidate reaching editIndex from the positions
+     * before such an array or within it moves the restart to the start of the array.
+     * @param syncIndex first of the positions, in previous positions, which the previous scan visited in steps of skips
+     * @param editIndex first edited position of this sequence
+     * @param shift moves previous positions to positions of this sequence
+     * @return the restart in previous positions
+     * */
+    private int findRestartIndex(Vector<CRISPRArray> previousArrays, int firstArray, int nextArray, int syncIndex,
+                                 int restartIndex, int editIndex, int shift) {
+        int skips = getSkips();
+        PatternSearcher pattern = newPatternSearcher();
+        // positions from segmentBegin up to index, before previous array
+        int array = nextArray;
+        int segmentBegin = getSegmentBegin(previousArrays, firstArray, array, syncIndex);
+        int index = restartIndex;
+        while (restartIndex - index < 2 * getReach()) {
+            if (index - skips < segmentBegin) {
+                if (array == firstArray) {
+                    break;
+                }
+                --array;
+                segmentBegin = getSegmentBegin(previousArrays, firstArray, array, syncIndex);
+                index = segmentBegin + max(0, (previousArrays.get(array).getEndIndex() - segmentBegin) / skips + 1) * skips;
+                continue;
+            }
+            index -= skips;
+            pattern.setPattern(index + shift);
+            CRISPRArray crisprArray = findExactRepeats(index + shift, pattern);
+            int readEnd = (crisprArray != null) ? getReadEnd(crisprArray) : index + shift + getReach();
+            if (readEnd >= editIndex) {
+                restartIndex = (array < nextArray)
+                        ? min(index, segmentBegin + max(0, (previousArrays.get(array).getStartIndex() - segmentBegin) / skips) * skips)
+                        : index;
+            }
+        }
+        return restartIndex;
+    }
+
+    /**
+     * @return first of the positions the previous scan visited before previous array, in previous positions
+     * */
+    private int getSegmentBegin(Vector<CRISPRArray> previousArrays, int firstArray, int array, int syncIndex) {
+        return (array == firstArray) ? syncIndex : previousArrays.get(array - 1).getEndIndex() + 1 + getSkips();
+    }
+
+    /**
+     * Finds the first position at least minIndex visited both by the scan and by the previous scan.
+     * The previous scan visited positions from restartIndex, in steps of skips, up to the start of previous array
+     * firstArray, and the same after each array up to the start of the next one. They are moved by shift.
+     * @return the position in this sequence, or -1 if there is no such position
+     * */
+    private int findSyncIndex(ScanResult scanResult, int scanEnd, Vector<CRISPRArray> previousArrays, int firstArray,
+                              int restartIndex, int minIndex, int shift) {
+        int skips = getSkips();
+        int lastIndex = getScanLimit() - 1;
+        for (int segment = 0; segment < scanResult.getNumSegments(); ++segment) {
+            int begin = scanResult.getSegmentBegin(segment);
+            int end = min(scanResult.getSegmentEnd(segment, scanEnd), lastIndex);
+            if (end < minIndex) {
+                continue;
+            }
+            for (int array = firstArray - 1; array < previousArrays.size(); ++array) {
+                int previousBegin = ((array < firstArray) ? restartIndex : previousArrays.get(array).getEndIndex() + 1 + skips) + shift;
+                if (previousBegin > end) {
+                    break;
+                }
+                int previousEnd = (array + 1 < previousArrays.size()) ? previousArrays.get(array + 1).getStartIndex() + shift : lastIndex;
+                if (Math.floorMod(begin - previousBegin, skips) != 0) {
+                    continue;
+                }
+                int index = max(max(begin, previousBegin), minIndex);
+                index += Math.floorMod(begin - index, skips);
+                if (index <= min(end, previousEnd)) {
+                    return index;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Scans the forward strand and the reverse complement view of the sequence, concurrently if numThreads > 1.
+     * Every array is a run of direct repeats on both strands, so an array found on the reverse strand is passed
+     * only if it does not overlap an array found on the forward strand. Arrays are passed in order of position.
+     * Each strand of a long sequence is scanned in windows.
+     * */
+    private void findCRISPRsOnBothStrands(int numThreads, CRISPRArraySink sink) {
+        CRISPRSearchEngine reverseEngine = newEngine(dnaSequence.reverseComplement());
+
+        Vector<CRISPRArray> forwardArrays = new Vector<>();
+        Vector<CRISPRArray> reverseArrays;
+        if (numThreads <= 1) {
+            scanForwardStrand(1, forwardArrays::add);
+            reverseArrays = reverseEngine.findCRISPRs();
+        } else {
+            int reverseThreads = numThreads / 2;
+            ExecutorService reverseScan = Executors.newSingleThreadExecutor();
+            try {
+                Future<Vector<CRISPRArray>> reverseResult = reverseScan.submit(() -> reverseEngine.findCRISPRs(reverseThreads));
+                scanForwardStrand(numThreads - reverseThreads, forwardArrays::add);
+                reverseArrays = reverseResult.get();
+            } catch (InterruptedException | ExecutionException e) {
+                throw new IllegalStateException("Reverse strand scan failed", e);
+            } finally {
+                reverseScan.shutdown();
+            }
+        }
+
+        // reverse strand arrays come in decreasing order of forward position
+        Vector<CRISPRArray> convertedArrays = new Vector<>();
+        for (int i = reverseArrays.size() - 1; i >= 0; --i) {
+            convertedArrays.add(CRISPRArray.fromReverseStrand(reverseArrays.get(i)));
+        }
+
+        int reverseIndex = 0;
+        long lastEndPosition = -1;
+        for (int forwardIndex = 0; forwardIndex <= forwardArrays.size(); ++forwardIndex) {
+            long nextStartPosition = (forwardIndex < forwardArrays.size())
+                    ? forwardArrays.get(forwardIndex).getStartPosition() : Long.MAX_VALUE;
+            for (; reverseIndex < convertedArrays.size(); ++reverseIndex) {
+                CRISPRArray reverseArray = convertedArrays.get(reverseIndex);
+                if (reverseArray.getStartPosition() >= nextStartPosition) {
+                    break;
+                }
+                // arrays overlapping a forward array are the same array seen from the other strand
+                if (reverseArray.getStartPosition() >= lastEndPosition && reverseArray.getEndPosition() <= nextStartPosition) {
+                    sink.accept(reverseArray);
+                }
+            }
+            if (forwardIndex < forwardArrays.size()) {
+                sink.accept(forwardArrays.get(forwardIndex));
+                lastEndPosition = forwardArrays.get(forwardIndex).getEndPosition();
+            }
+        }
+    }
+
+    /**
+     * Scans in parallel the next numThreads chunks which are not yet scanned in the given phase.
+     * */
+    private void scanChunks(ForkJoinPool pool, ScanResult[][] chunkScans, int firstChunk, int phase,
+                            int beginIndex, int chunkLength, int endIndex) {
+        int skips = getSkips();
+        int lastChunk = min(firstChunk + pool.getParallelism(), chunkScans.length);
+        Vector<ForkJoinTask<ScanResult>> tasks = new Vector<>();
+
+        for (int chunk = firstChunk; chunk < lastChunk; ++chunk) {
+            if (chunkScans[chunk][phase] != null) {
+                tasks.add(null);
+                continue;
+            }
+            int chunkBegin = beginIndex + chunk * chunkLength;
+            int chunkEnd = min(chunkBegin + chunkLength, endIndex);
+            // first position of the chunk in the given phase
+            int phaseBegin = chunkBegin + Math.floorMod(phase - chunkBegin, skips);
+            tasks.add(pool.submit(() -> scan(phaseBegin, chunkEnd, null)));
+        }
+
+        for (int chunk = firstChunk; chunk < lastChunk; ++chunk) {
+            ForkJoinTask<ScanResult> task = tasks.get(chunk - firstChunk);
+            if (task != null) {
+                chunkScans[chunk][phase] = task.join();
+            }
+        }
+    }
+
+    /**
+     * Result of scanning a range of positions: CRISPR arrays with the positions they were found from,
+     * and the scanned positions as segments of positions with step skips, split by the found arrays.
+     * */
+    private static class ScanResult {
+        private final int skips;
+        private final Vector<CRISPRArray> crisprArrays = new Vector<>();
+        private final Vector<Integer> crisprArrayScanIndices = new Vector<>();
+        private final Vector<Integer> segmentBeginIndices = new Vector<>();
+        private int exitIndex;
+
+        ScanResult(int beginIndex, int skips) {
+            this.skips = skips;
+            segmentBeginIndices.add(beginIndex);
+        }
+
+        void addCRISPRArray(int scanIndex, CRISPRArray crisprArray) {
+            crisprArrays.add(crisprArray);
+            crisprArrayScanIndices.add(scanIndex);
+        }
+
+        void addSegment(int beginIndex) {
+            segmentBeginIndices.add(beginIndex);
+        }
+
+        int getNumSegments() {
+            return segmentBeginIndices.size();
+        }
+
+        int getSegmentBegin(int segment) {
+            return segmentBeginIndices.get(segment);
+        }
+
+        /**
+         * @param endIndex end of the scanned range
+         * @return last position of the segment, which may be before its begin if the segment is empty
+         * */
+        int getSegmentEnd(int segment, int endIndex) {
+            return segment < crisprArrayScanIndices.size() ? crisprArrayScanIndices.get(segment) : endIndex - 1;
+        }
+
+        /**
+         * Checks if the scan passed through the given position, so its continuation from there is the serial one.
+         * */
+        boolean visits(int index, int endIndex) {
+            for (int segment = 0; segment < getNumSegments(); ++segment) {
+                int segmentBegin = getSegmentBegin(segment);
+                if (index >= segmentBegin && index <= getSegmentEnd(segment, endIndex) && (index - segmentBegin) % skips == 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Passes arrays found from positions in [beginIndex, endIndex) to the sink.
+         * */
+        void passCRISPRArrays(int beginIndex, int endIndex, CRISPRArraySink sink) {
+            for (int i = 0; i < crisprArrays.size(); ++i) {
+                int scanIndex = crisprArrayScanIndices.get(i);
+                if (scanIndex >= beginIndex && scanIndex < endIndex) {
+                    sink.accept(crisprArrays.get(i));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package crispr;
+
+import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * Scans DNA sequences on a pool of worker threads.
+ * At most queueCapacity sequences wait for a free worker, submit blocks while the queue is full,
+ * so a reader can not run ahead of the workers and fill the heap with sequences.
+ * */
+public class CRISPRSearchQueue {
+    private final ExecutorService workers;
+    private final Semaphore queueSlots;
+    private final Function<DNASequence, Vector<CRISPRArray>> search;
+
+    /**
+     * @param search function finding CRISPR arrays in one sequence, called from the worker threads
+     * */
+    CRISPRSearchQueue(int numWorkers, int queueCapacity, Function<DNASequence, Vector<CRISPRArray>> search) {
+        this.workers = Executors.newFixedThreadPool(numWorkers);
+        this.queueSlots = new Semaphore(numWorkers + queueCapacity);
+        this.search = search;
+    }
+
+    /**
+     * Queues the sequence for scanning. Blocks while the queue is full.
+     * @return future of CRISPR arrays found in the sequence
+     * */
+    public Future<Vector<CRISPRArray>> submit(DNASequence dnaSequence) throws InterruptedException {
+        queueSlots.acquire();
+        try {
+            return workers.submit(() -> {
+                try {
+                    return search.apply(dnaSequence);
+                } finally {
+                    queueSlots.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            queueSlots.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Lets queued sequences finish and stops the workers.
+     * */
+    public void shutdown() {
+        workers.shutdown();
+    }
+}
@@ -0,0 +1,144 @@
+package crispr;
+
+import java.util.Arrays;
+
+/**
+ * Decides if columns of the repeats of a CRISPR array are conserved, i.e. if one nucleotide occurs in at least
+ * a similarityThreshold fraction of the repeats.
+ * Nucleotides are counted in a fixed count array, several columns in one pass over the repeats.
+ * Counting stops as soon as every column still of interest is decided.
+ * */
+public class ColumnConsensus {
+    // number of columns scored in one pass over the repeats
+    public static final int MAX_COLUMNS = 8;
+    private static final int NUM_NUCLEOTIDES = 4;
+
+    final DNASequence dnaSequence;
+    private final double similarityThreshold;
+    private final int[] counts = new int[MAX_COLUMNS * NUM_NUCLEOTIDES];
+    private final int[] maxCounts = new int[MAX_COLUMNS];
+    private final boolean[] hasOtherCharacters = new boolean[MAX_COLUMNS];
+
+    ColumnConsensus(DNASequence dnaSequence, double similarityThreshold) {
+        this.dnaSequence = dnaSequence;
+        this.similarityThreshold = similarityThreshold;
+    }
+
+    private static int code(byte nucleotide) {
+        switch (nucleotide) {
+            case 'A': return 0;
+            case 'C': return 1;
+            case 'G': return 2;
+            case 'T': return 3;
+            default: return -1;
+        }
+    }
+
+    /**
+     * @return the smallest count of one nucleotide in numRepeats repeats which makes a column conserved
+     * */
+    int getRequiredCount(int numRepeats) {
+        // start from the estimate and fix it with the exact percentage expression, so rounding agrees with it
+        int count = (int) (similarityThreshold * numRepeats);
+        while (count > 0 && isConservedCount(count - 1, numRepeats)) {
+            --count;
+        }
+        while (count <= numRepeats && !isConservedCount(count, numRepeats)) {
+            ++count;
+        }
+        return count;
+    }
+
+    private boolean isConservedCount(int count, int numRepeats) {
+        double percent = (double)count / numRepeats;
+        return percent >= similarityThreshold;
+    }
+
+    /**
+     * Checks if the column at given offset from the repeat starts is conserved.
+     * */
+    public boolean isConserved(CRISPRArray crisprArray, int offset) {
+        return countConservedColumns(crisprArray, offset, 1, 1) == 1;
+    }
+
+    /**
+     * Counts consecutive conserved columns at offsets firstOffset, firstOffset + step, ... from the repeat starts.
+     * @param numColumns number of columns to check, at most MAX_COLUMNS
+     * @param step 1 to go to right, -1 to go to left
+     * @return number of leading columns which are conserved
+     * */
+    public int countConservedColumns(CRISPRArray crisprArray, int firstOffset, int numColumns, int step) {
+        assert numColumns <= MAX_COLUMNS;
+
+        int numRepeats = crisprArray.getNumRepeats();
+        int requiredCount = getRequiredCount(numRepeats);
+        Arrays.fill(counts, 0, numColumns * NUM_NUCLEOTIDES, 0);
+        Arrays.fill(maxCounts, 0, numColumns, 0);
+        Arrays.fill(hasOtherCharacters, 0, numColumns, false);
+
+        // columns at and after the first column known not to be conserved do not matter
+        int numCandidateColumns = numColumns;
+        for (int k = 0; k < numRepeats; k++) {
+            int repeatStart = crisprArray.getRepeatPosition(k) + firstOffset;
+            for (int column = 0; column < numCandidateColumns; column++) {
+                int c = code(dnaSequence.getNucleotideByte(repeatStart + column * step));
+                if (c < 0) {
+                    hasOtherCharacters[column] = true;
+                    continue;
+                }
+                int count = ++counts[column * NUM_NUCLEOTIDES + c];
+                if (count > maxCounts[column]) {
+                    maxCounts[column] = count;
+                }
+            }
+
+            int remainingRepeats = numRepeats - k - 1;
+            boolean areAllConserved = true;
+            for (int column = 0; column < numCandidateColumns; column++) {
+                if (hasOtherCharacters[column]) {
+                    areAllConserved = false;
+                } else if (maxCounts[column] + remainingRepeats < requiredCount) {
+                    // no nucleotide can reach the required count any more
+                    numCandidateColumns = column;
+                    break;
+                } else if (maxCounts[column] < requiredCount) {
+                    areAllConserved = false;
+                }
+            }
+            if (areAllConserved) {
+                // one nucleotide already reached the required count in every column
+                return numCandidateColumns;
+            }
+        }
+
+        for (int column = 0; column < numCandidateColumns; column++) {
+            boolean isConserved = hasOtherCharacters[column]
+                    ? isConservedCountingAll(crisprArray, firstOffset + column * step, requiredCount)
+                    : maxCounts[column] >= requiredCount;
+            if (!isConserved) {
+                return column;
+            }
+        }
+        return numCandidateColumns;
+    }
+
+    /**
+     * Counts every character of the column, not only A, C, G and T. Used for the rare columns with other characters.
+     * */
+    boolean isConservedCountingAll(CRISPRArray crisprArray, int offset, int requiredCount) {
+        int numRepeats = crisprArray.getNumRepeats();
+        for (int k = 0; k < numRepeats; k++) {
+            byte nucleotide = dnaSequence.getNucleotideByte(crisprArray.getRepeatPosition(k) + offset);
+            int count = 0;
+            for (int l = k; l < numRepeats; l++) {
+                if (dnaSequence.getNucleotideByte(crisprArray.getRepeatPosition(l) + offset) == nucleotide) {
+                    ++count;
+                }
+            }
+            if (count >= requiredCount) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,178 @@
+package crispr;
+
+/**
+ * A record of a fasta file, or a window of it, read on the forward strand or as its reverse complement.
+ * Nucleotides are indexed by ints from the start of the window. Records longer than Integer.MAX_VALUE,
+ * or than a scan takes at once, are scanned through windows of them (see window), whose positions
+ * in the record are their index plus getOffset().
+ * */
+public class DNASequence {
+    // complements of nucleotides and IUPAC codes by byte value, other characters are their own complement
+    private static final byte[] COMPLEMENTS = new byte[256];
+
+    static {
+        for (int b = 0; b < COMPLEMENTS.length; ++b) {
+            COMPLEMENTS[b] = (byte) b;
+        }
+        String pairs = "ATCGRYKMBVDH";
+        for (int i = 0; i < pairs.length(); i += 2) {
+            char c1 = pairs.charAt(i);
+            char c2 = pairs.charAt(i + 1);
+            COMPLEMENTS[c1] = (byte) c2;
+            COMPLEMENTS[c2] = (byte) c1;
+            COMPLEMENTS[Character.toLowerCase(c1)] = (byte) Character.toLowerCase(c2);
+            COMPLEMENTS[Character.toLowerCase(c2)] = (byte) Character.toLowerCase(c1);
+        }
+    }
+
+    // TODO remove hardcoded value
+    private PackedSequence sequence;
+    private String header;
+    // true for the reverse complement view, whose position p reads the complement of position length - 1 - p of sequence
+    private boolean isReverseComplement;
+    // position of index 0 on the strand of the view, and number of nucleotides of the view
+    private long offset;
+    private long length;
+
+    DNASequence(String header, PackedSequence sequence) {
+        this(header, sequence, false, 0, sequence.length());
+    }
+
+    private DNASequence(String header, PackedSequence sequence, boolean isReverseComplement, long offset, long length) {
+        this.header = header;
+        this.sequence = sequence;
+        this.isReverseComplement = isReverseComplement;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Reads the first record of a fasta file.
+     * @return the DNA sequence, or null if the file is not a correct fasta file.
+     * */
+    public static DNASequence build(String sequenceFile) {
+        // read sequence file
+        // set sequence
+
+        try (FastaReader fastaReader = new FastaReader(sequenceFile)) {
+            DNASequence dnaSequence = fastaReader.next();
+            if (dnaSequence != null && dnaSequence.length() > 0) {
+                return dnaSequence;
+            }
+        } catch (Exception e) {
+            System.out.println("Exception while reading from file " + sequenceFile + ".");
+            System.out.println(e);
+        }
+        return null;
+    }
+
+    public String getHeader() {
+        return header;
+    }
+
+    /**
+     * @return the reverse complement of this sequence. Nothing is copied, nucleotides are complemented on access.
+     * */
+    public DNASequence reverseComplement() {
+        return new DNASequence(header, sequence, !isReverseComplement, sequence.length() - offset - length, length);
+    }
+
+    /**
+     * @return view of length nucleotides from beginIndex, on the same strand. Nothing is copied.
+     * */
+    public DNASequence window(long beginIndex, int length) {
+        if (beginIndex < 0 || length < 0 || beginIndex + length > this.length) {
+            throw new IndexOutOfBoundsException("begin " + beginIndex + ", length " + length + ", sequence length " + this.length);
+        }
+        return new DNASequence(header, sequence, isReverseComplement, offset + beginIndex, length);
+    }
+
+    /**
+     * @return position of index 0 in the record, on the strand of the view; 0 unless this is a window
+     * */
+    public long getOffset() {
+        return offset;
+    }
+
+    public boolean isReverseComplement() {
+        return isReverseComplement;
+    }
+
+    /**
+     * @return 64-bit hash of the nucleotides, which differs for the reverse complement view
+     * */
+    public long getContentHash() {
+        long hash = sequence.contentHash();
+        if (length != sequence.length()) {
+            hash = (hash * 31 + offset) * 31 + length;
+        }
+        return isReverseComplement ? ~hash : hash;
+    }
+
+    /**
+     * @return complement of the nucleotide, or the character itself if it has no complement
+     * */
+    public static byte complement(byte nucleotide) {
+        return COMPLEMENTS[nucleotide & 0xFF];
+    }
+
+    /**
+     * @return number of nucleotides indexed by ints, all of them unless the view is longer than Integer.MAX_VALUE
+     * */
+	public int length()
+	{
+		return (int) Math.min(length, Integer.MAX_VALUE);
+	}
+
+    /**
+     * @return number of nucleotides of the view, which may be more than length() for long records
+     * */
+    public long totalLength() {
+        return length;
+    }
+
+    public String subSequence(int beginIndex, int endIndex) {
+        if (beginIndex < 0 || endIndex > length() || beginIndex > endIndex) {
+            throw new IndexOutOfBoundsException("begin " + beginIndex + ", end " + endIndex + ", length " + length());
+        }
+        if (!isReverseComplement) {
+            return sequence.substring(offset + beginIndex, offset + endIndex);
+        }
+        char[] result = new char[endIndex - beginIndex];
+        for (int i = beginIndex; i < endIndex; ++i) {
+            result[i - beginIndex] = getNucleotide(i);
+        }
+        return new String(result);
+    }
+
+    public char getNucleotide(int index) {
+        if (isReverseComplement) {
+            return (char) (getNucleotideByte(index) & 0xFF);
+        }
+        return sequence.charAt(offset + index);
+    }
+
+    public byte getNucleotideByte(int index) {
+        if (isReverseComplement) {
+            return COMPLEMENTS[sequence.byteAt(sequence.length() - 1 - (offset + index)) & 0xFF];
+        }
+        return sequence.byteAt(offset + index);
+    }
+
+    /**
+     * Copies the nucleotides of [beginIndex, beginIndex + length) into destination, cheaper than one
+     * getNucleotideByte per nucleotide.
+     * */
+    public void getNucleotideBytes(int beginIndex, byte[] destination, int offset, int length) {
+        if (!isReverseComplement) {
+            sequence.getBytes(this.offset + beginIndex, destination, offset, length);
+            return;
+        }
+        sequence.getBytes(sequence.length() - (this.offset + beginIndex) - length, destination, offset, length);
+        for (int i = offset, j = offset + length - 1; i <= j; ++i, --j) {
+            byte nucleotide = destination[i];
+            destination[i] = COMPLEMENTS[destination[j] & 0xFF];
+            destination[j] = COMPLEMENTS[nucleotide & 0xFF];
+        }
+    }
+}
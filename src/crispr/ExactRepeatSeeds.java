@@ -0,0 +1,53 @@
+package crispr;
+
+/**
+ * Bitmap of the scan positions of a sequence whose search window repeats, exactly or within the allowed mismatches,
+ * a spacer and a repeat downstream, for the widest repeat and spacer ranges of a parameter sweep.
+ * A window which does not repeat in the widest ranges does not repeat in narrower ones either, so an engine
+ * with narrower ranges finds the same candidates searching only at seeded positions (see CRISPRSearchEngine.setSeeds).
+ * Positions masked as low-complexity are not seeded.
+ * */
+public class ExactRepeatSeeds {
+    private final DNASequence dnaSequence;
+    private final int searchWindowLength;
+    // seeded positions repeat from minRepeatDistance to maxRepeatDistance nucleotides downstream
+    private final int minRepeatDistance;
+    private final int maxRepeatDistance;
+    private final long[] bits;
+
+    ExactRepeatSeeds(DNASequence dnaSequence, int searchWindowLength, int minRepeatDistance, int maxRepeatDistance) {
+        this.dnaSequence = dnaSequence;
+        this.searchWindowLength = searchWindowLength;
+        this.minRepeatDistance = minRepeatDistance;
+        this.maxRepeatDistance = maxRepeatDistance;
+        this.bits = new long[(dnaSequence.length() + Long.SIZE - 1) / Long.SIZE];
+    }
+
+    /**
+     * Threads seeding different positions must not share a word, a multiple of Long.SIZE positions apart.
+     * */
+    void set(int index) {
+        bits[index / Long.SIZE] |= 1L << index;
+    }
+
+    public boolean isSeed(int index) {
+        return (bits[index / Long.SIZE] & (1L << index)) != 0;
+    }
+
+    public int getNumSeeds() {
+        int numSeeds = 0;
+        for (long word : bits) {
+            numSeeds += Long.bitCount(word);
+        }
+        return numSeeds;
+    }
+
+    /**
+     * @return true if the seeds hold every position whose window of the given length repeats
+     * in the given distance range of the sequence
+     * */
+    boolean covers(DNASequence dnaSequence, int searchWindowLength, int minRepeatDistance, int maxRepeatDistance) {
+        return dnaSequence == this.dnaSequence && searchWindowLength == this.searchWindowLength
+                && minRepeatDistance >= this.minRepeatDistance && maxRepeatDistance <= this.maxRepeatDistance;
+    }
+}
@@ -0,0 +1,287 @@
+package crispr;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Vector;
+import java.util.zip.GZIPInputStream;
+
+import static java.lang.Math.min;
+
+/**
+ * Reads records of a fasta file one by one through memory-mapped regions of the file, or from a stream.
+ * Gzip and BGZF compressed input, file or stream, is recognized by its magic bytes and decompressed while reading.
+ * Newlines are stripped and bases are upper-cased in one pass straight into a PackedSequence,
+ * no String is made per line.
+ * */
+public class FastaReader implements Closeable {
+    // a single mapping can not exceed 2 GB
+    private static final long MAP_REGION_SIZE = 1L << 30;
+    // bytes are copied out of the mapping in blocks, which is cheaper than one get() per byte
+    private static final int BUFFER_SIZE = 1 << 16;
+    // bytes needed to tell BGZF from plain gzip
+    private static final int GZIP_PEEK_SIZE = 16;
+
+    private String sequenceFile;
+    private FileChannel channel;
+    private InputStream input;
+    private long fileSize;
+    private long regionStart;
+    private MappedByteBuffer region;
+    private byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferPosition;
+    private int bufferLength;
+    private boolean isAtLineStart = true;
+    private boolean isOpen;
+
+    private long bytesRead;
+    private long readTimeNanos;
+
+    // null if no cache is used
+    private SequenceCache cache;
+    // records loaded from the cache, null if the file is parsed
+    private Vector<DNASequence> cachedRecords;
+    private int numCachedRecordsReturned;
+    // records parsed so far, listed in the cache at the end of the file
+    private Vector<DNASequence> parsedRecords;
+
+    FastaReader(String sequenceFile) {
+        this.sequenceFile = sequenceFile;
+    }
+
+    /**
+     * Reads records from a stream instead of a file, e.g. from a sequence upload.
+     * */
+    FastaReader(InputStream input) {
+        this.sequenceFile = "-";
+        this.input = input;
+    }
+
+    /**
+     * Makes the reader load records from the cache if the file is cached there, and cache them otherwise.
+     * Has no effect on stream readers and after the first record is read.
+     * */
+    public void setCache(SequenceCache cache) {
+        if (input == null) {
+            this.cache = cache;
+        }
+    }
+
+    /**
+     * Reads the next record from the file.
+     * @return the DNA sequence of the record, or null at the end of the file
+     * or if the file does not start with a fasta header.
+     * */
+    public DNASequence next() throws IOException {
+        long startTime = System.nanoTime();
+        try {
+            if (!isOpen) {
+                isOpen = true;
+                open();
+            }
+            if (cachedRecords != null) {
+                return (numCachedRecordsReturned < cachedRecords.size()) ? cachedRecords.get(numCachedRecordsReturned++) : null;
+            }
+            DNASequence dnaSequence = readRecord();
+            if (dnaSequence == null && parsedRecords != null && !parsedRecords.isEmpty()) {
+                try {
+                    cache.putListing(Paths.get(sequenceFile), parsedRecords);
+                } catch (IOException ex) {
+                    reportCacheException(ex);
+                }
+                parsedRecords = null;
+            }
+            return dnaSequence;
+        } finally {
+            readTimeNanos += System.nanoTime() - startTime;
+        }
+    }
+
+    /**
+     * Loads the records from the cache, or opens the file or stream. Gzip input is decompressed on the fly,
+     * BGZF input on several threads.
+     * */
+    private void open() throws IOException {
+        if (input != null) {
+            input = decompress(input);
+            return;
+        }
+        if (cache != null) {
+            cachedRecords = getCachedRecords();
+            if (cachedRecords != null) {
+                return;
+            }
+        }
+        channel = FileChannel.open(Paths.get(sequenceFile), StandardOpenOption.READ);
+        fileSize = channel.size();
+        ByteBuffer magic = ByteBuffer.allocate(2);
+        while (magic.hasRemaining() && channel.read(magic, magic.position()) > 0) {
+        }
+        if (!magic.hasRemaining() && (magic.get(0) & 0xFF) == 0x1F && (magic.get(1) & 0xFF) == 0x8B) {
+            channel.close();
+            channel = null;
+            input = decompress(Files.newInputStream(Paths.get(sequenceFile)));
+        }
+    }
+
+    /**
+     * @return stream of the decompressed input if it is gzip or BGZF, the input as it is otherwise
+     * */
+    private static InputStream decompress(InputStream input) throws IOException {
+        BufferedInputStream bufferedInput = new BufferedInputStream(input, BUFFER_SIZE);
+        bufferedInput.mark(GZIP_PEEK_SIZE);
+        byte[] header = bufferedInput.readNBytes(GZIP_PEEK_SIZE);
+        bufferedInput.reset();
+        if (header.length < 2 || (header[0] & 0xFF) != 0x1F || (header[1] & 0xFF) != 0x8B) {
+            return bufferedInput;
+        }
+        if (BgzfInputStream.isBgzfHeader(header)) {
+            return new BgzfInputStream(bufferedInput);
+        }
+        return new GZIPInputStream(bufferedInput, BUFFER_SIZE);
+    }
+
+    private DNASequence readRecord() throws IOException {
+        int b = nextByte();
+        // skip empty lines between records
+        while (b == '\n' || b == '\r') {
+            b = nextByte();
+        }
+        if (b != '>') {
+            return null;
+        }
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        while (b >= 0 && b != '\n' && b != '\r') {
+            header.write(b);
+            b = nextByte();
+        }
+        isAtLineStart = true;
+
+        PackedSequence sequence = new PackedSequence();
+        while (true) {
+            if (bufferPosition == bufferLength && !fillBuffer()) {
+                break;
+            }
+            b = buffer[bufferPosition];
+            if (b == '\n' || b == '\r') {
+                isAtLineStart = true;
+            } else if (b == '>' && isAtLineStart) {
+                // header of the next record, left in the buffer
+                break;
+            } else {
+                isAtLineStart = false;
+                sequence.append((byte) b);
+            }
+            ++bufferPosition;
+        }
+        sequence.trim();
+
+        DNASequence dnaSequence = new DNASequence(header.toString(Charset.defaultCharset()), sequence);
+        if (parsedRecords != null) {
+            try {
+                cache.putSequence(dnaSequence, sequence);
+                parsedRecords.add(dnaSequence);
+            } catch (IOException ex) {
+                reportCacheException(ex);
+                parsedRecords = null;
+            }
+        }
+        return dnaSequence;
+    }
+
+    /**
+     * @return records of the file from the cache, or null if they have to be parsed
+     * */
+    private Vector<DNASequence> getCachedRecords() {
+        try {
+            Vector<DNASequence> records = cache.get(Paths.get(sequenceFile));
+            if (records == null) {
+                parsedRecords = new Vector<>();
+            }
+            return records;
+        } catch (IOException ex) {
+            reportCacheException(ex);
+            return null;
+        }
+    }
+
+    private void reportCacheException(IOException ex) {
+        System.out.println("Exception while using sequence cache " + cache.getDirectory() + ".");
+        System.out.println(ex);
+    }
+
+    /**
+     * @return the next byte of the file, or -1 at the end of the file.
+     * */
+    private int nextByte() throws IOException {
+        if (bufferPosition == bufferLength && !fillBuffer()) {
+            return -1;
+        }
+        return buffer[bufferPosition++] & 0xFF;
+    }
+
+    private boolean fillBuffer() throws IOException {
+        if (input != null) {
+            bufferLength = Math.max(input.read(buffer), 0);
+            bufferPosition = 0;
+            bytesRead += bufferLength;
+            return bufferLength > 0;
+        }
+        if (region == null || !region.hasRemaining()) {
+            if (region != null) {
+                regionStart += region.capacity();
+            }
+            if (regionStart >= fileSize) {
+                return false;
+            }
+            region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart, min(MAP_REGION_SIZE, fileSize - regionStart));
+        }
+        bufferLength = min(buffer.length, region.remaining());
+        bufferPosition = 0;
+        region.get(buffer, 0, bufferLength);
+        bytesRead += bufferLength;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        if (input != null) {
+            input.close();
+        }
+    }
+
+    public String getSequenceFile() {
+        return sequenceFile;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getReadTimeNanos() {
+        return readTimeNanos;
+    }
+
+    /**
+     * @return read throughput in MB/s
+     * */
+    public double getThroughput() {
+        if (readTimeNanos == 0) {
+            return 0;
+        }
+        return (bytesRead / 1e6) / (readTimeNanos / 1e9);
+    }
+}
@@ -0,0 +1,101 @@
+package crispr;
+
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes CRISPR arrays as GFF3 features: a repeat_region per array and a direct_repeat per repeat.
+ * */
+class Gff3CRISPRArrayWriter extends CRISPRArrayWriter {
+    private static final String SOURCE = "CRISPRArraysFinder";
+    // characters allowed unescaped in the sequence id column
+    private static final String ID_CHARACTERS = ".:^*$@!+_?-|";
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    private String escapedSequenceId;
+
+    Gff3CRISPRArrayWriter(WritableByteChannel channel, int bufferSize, boolean flushEachArray) {
+        super(channel, bufferSize, flushEachArray);
+    }
+
+    @Override
+    protected void writeFileHeader() {
+        put("##gff-version 3\n");
+    }
+
+    @Override
+    protected void writeSequenceHeader() {
+        escapedSequenceId = escape(getSequenceId());
+        put("##sequence-region ");
+        put(escapedSequenceId);
+        put(" 1 ");
+        putDecimal(dnaSequence.totalLength());
+        put((byte) '\n');
+    }
+
+    @Override
+    protected void writeCRISPRArray(CRISPRArray crisprArray) {
+        int repeatLength = crisprArray.getRepeatLength();
+        char strand = (crisprArray.getStrand() == CRISPRArray.Strand.FORWARD) ? '+' : '-';
+        putFeature("repeat_region", crisprArray.getStartPosition(), crisprArray.getEndPosition(), strand);
+        put("ID=");
+        putArrayId();
+        put(";rpt_type=direct;rpt_unit_seq=");
+        putRepeat(crisprArray);
+        put((byte) '\n');
+
+        long sequenceOffset = crisprArray.getSequenceOffset();
+        for (int i = 0; i < crisprArray.getNumRepeats(); i++) {
+            long repeatStart = sequenceOffset + crisprArray.getRepeatPosition(i);
+            putFeature("direct_repeat", repeatStart, repeatStart + repeatLength, strand);
+            put("Parent=");
+            putArrayId();
+            put((byte) '\n');
+        }
+    }
+
+    @Override
+    protected void writeSequenceFooter() {
+    }
+
+    /**
+     * Puts the columns of a feature up to the attributes. GFF3 coordinates are 1-based and inclusive.
+     * */
+    private void putFeature(String type, long beginIndex, long endIndex, char strand) {
+        put(escapedSequenceId);
+        put((byte) '\t');
+        put(SOURCE);
+        put((byte) '\t');
+        put(type);
+        put((byte) '\t');
+        putDecimal(beginIndex + 1);
+        put((byte) '\t');
+        putDecimal(endIndex);
+        put("\t.\t");
+        put((byte) strand);
+        put("\t.\t");
+    }
+
+    private void putArrayId() {
+        put(escapedSequenceId);
+        put("_CRISPR");
+        putDecimal(numCRISPRs);
+    }
+
+    /**
+     * Escapes characters which are not allowed in the sequence id column as %XX.
+     * */
+    private static String escape(String id) {
+        StringBuilder result = new StringBuilder(id.length());
+        for (byte b : id.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || ID_CHARACTERS.indexOf(c) >= 0) {
+                result.append(c);
+            } else {
+                result.append('%').append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xf]);
+            }
+        }
+        return result.toString();
+    }
+}
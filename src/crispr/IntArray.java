@@ -0,0 +1,166 @@
+package crispr;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Array of ints which is either an int[] on the heap or a list of off-heap segments.
+ * Large index arrays go off-heap, so they do not count against the heap and can be mapped from a file.
+ * */
+public abstract class IntArray {
+    // arrays this long and longer are allocated off-heap
+    public static final int OFF_HEAP_THRESHOLD = 1 << 26;
+    // ints per off-heap segment, a ByteBuffer can not exceed 2 GB
+    private static final int SEGMENT_BITS = 28;
+    private static final int SEGMENT_LENGTH = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_LENGTH - 1;
+
+    public abstract int get(int index);
+
+    public abstract void set(int index, int value);
+
+    public abstract int length();
+
+    /**
+     * @return view of length elements starting at offset, sharing the elements with this array
+     * */
+    public IntArray slice(int offset, int length) {
+        return new Slice(this, offset, length);
+    }
+
+    public void fill(int value) {
+        for (int i = 0; i < length(); ++i) {
+            set(i, value);
+        }
+    }
+
+    /**
+     * @return a zero-filled array, off-heap if it is at least OFF_HEAP_THRESHOLD long
+     * */
+    public static IntArray allocate(int length) {
+        if (length < OFF_HEAP_THRESHOLD) {
+            return new Heap(new int[length]);
+        }
+        IntBuffer[] segments = new IntBuffer[(length + SEGMENT_LENGTH - 1) >>> SEGMENT_BITS];
+        for (int segment = 0; segment < segments.length; ++segment) {
+            int segmentLength = Math.min(SEGMENT_LENGTH, length - segment * SEGMENT_LENGTH);
+            segments[segment] = ByteBuffer.allocateDirect(segmentLength * Integer.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        }
+        return new OffHeap(segments, length);
+    }
+
+    /**
+     * Maps length little-endian ints of the file starting at byte position read-only.
+     * */
+    public static IntArray map(FileChannel channel, long position, int length) throws IOException {
+        IntBuffer[] segments = new IntBuffer[(length + SEGMENT_LENGTH - 1) >>> SEGMENT_BITS];
+        for (int segment = 0; segment < segments.length; ++segment) {
+            int segmentLength = Math.min(SEGMENT_LENGTH, length - segment * SEGMENT_LENGTH);
+            segments[segment] = channel.map(FileChannel.MapMode.READ_ONLY,
+                            position + (long) segment * SEGMENT_LENGTH * Integer.BYTES, (long) segmentLength * Integer.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        }
+        return new OffHeap(segments, length);
+    }
+
+    /**
+     * Writes the elements to the channel as little-endian ints.
+     * */
+    public void write(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < length(); ++i) {
+            if (!buffer.hasRemaining()) {
+                writeFully(channel, buffer);
+            }
+            buffer.putInt(get(i));
+        }
+        writeFully(channel, buffer);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static class Heap extends IntArray {
+        private final int[] values;
+
+        Heap(int[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public int get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public void set(int index, int value) {
+            values[index] = value;
+        }
+
+        @Override
+        public int length() {
+            return values.length;
+        }
+    }
+
+    private static class OffHeap extends IntArray {
+        private final IntBuffer[] segments;
+        private final int length;
+
+        OffHeap(IntBuffer[] segments, int length) {
+            this.segments = segments;
+            this.length = length;
+        }
+
+        @Override
+        public int get(int index) {
+            return segments[index >>> SEGMENT_BITS].get(index & SEGMENT_MASK);
+        }
+
+        @Override
+        public void set(int index, int value) {
+            segments[index >>> SEGMENT_BITS].put(index & SEGMENT_MASK, value);
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+    }
+
+    private static class Slice extends IntArray {
+        private final IntArray array;
+        private final int offset;
+        private final int length;
+
+        Slice(IntArray array, int offset, int length) {
+            this.array = array;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        @Override
+        public int get(int index) {
+            return array.get(offset + index);
+        }
+
+        @Override
+        public void set(int index, int value) {
+            array.set(offset + index, value);
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package crispr;
+
+import java.util.Arrays;
+
+/**
+ * Index of k-mer occurrences of a DNA sequence.
+ * For every position the index keeps the next position whose k-mer falls into the same hash bucket,
+ * so the next occurrence of a k-mer is found by following the chain instead of searching the text.
+ * Only k-mers made of A, C, G and T are indexed.
+ * */
+public class KmerIndex {
+    private static final int NOT_INDEXED = -2;
+    private static final int NO_NEXT = -1;
+    private static final int MAX_BUCKET_BITS = 24;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private final DNASequence dnaSequence;
+    private final int k;
+    private final int[] next;
+
+    KmerIndex(DNASequence dnaSequence, int k) {
+        this.dnaSequence = dnaSequence;
+        this.k = k;
+        this.next = new int[dnaSequence.length()];
+        build();
+    }
+
+    private static int code(byte nucleotide) {
+        switch (nucleotide) {
+            case 'A': return 0;
+            case 'C': return 1;
+            case 'G': return 2;
+            case 'T': return 3;
+            default: return -1;
+        }
+    }
+
+    private void build() {
+        int n = dnaSequence.length();
+        int bucketBits = getBucketBits(n);
+
+        // 1. forward pass: bucket of the k-mer at every position, computed with a rolling hash
+        long power = 1;
+        for (int i = 0; i < k - 1; ++i) {
+            power *= 31;
+        }
+        long hash = 0;
+        int lastOther = -1;  // last position of a non-ACGT character
+        for (int i = 0; i < n; ++i) {
+            int c = code(dnaSequence.getNucleotideByte(i));
+            if (c < 0) {
+                lastOther = i;
+                c = 0;
+            }
+            int windowStart = i - k + 1;
+            if (windowStart > 0) {
+                int removed = code(dnaSequence.getNucleotideByte(windowStart - 1));
+                hash -= (removed < 0 ? 0 : removed) * power;
+            }
+            hash = hash * 31 + c;
+            if (windowStart >= 0) {
+                next[windowStart] = (lastOther >= windowStart) ? NOT_INDEXED
+                        : (int) ((hash * HASH_MULTIPLIER) >>> (64 - bucketBits));
+            }
+        }
+        for (int i = Math.max(0, n - k + 1); i < n; ++i) {
+            next[i] = NOT_INDEXED;
+        }
+
+        // 2. backward pass: replace buckets by the next position in the same bucket
+        int[] head = new int[1 << bucketBits];
+        Arrays.fill(head, NO_NEXT);
+        for (int i = n - 1; i >= 0; --i) {
+            if (next[i] != NOT_INDEXED) {
+                int bucket = next[i];
+                next[i] = head[bucket];
+                head[bucket] = i;
+            }
+        }
+    }
+
+    /**
+     * Enough buckets for the number of distinct k-mers, which is bounded by both 4^k and the sequence length.
+     * */
+    private int getBucketBits(int n) {
+        int bucketBits = 1;
+        while (bucketBits < MAX_BUCKET_BITS && bucketBits < 2 * k && (1 << bucketBits) < n) {
+            ++bucketBits;
+        }
+        return bucketBits;
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    /**
+     * @return true if the k-mer at the given index is indexed, false if it contains other characters than A, C, G, T.
+     * */
+    public boolean isIndexed(int index) {
+        return next[index] != NOT_INDEXED;
+    }
+
+    /**
+     * Finds the first occurrence of the k-mer at fromIndex in [beginIndex, endIndex).
+     * @precondition isIndexed(fromIndex) and fromIndex < beginIndex
+     * @return index of the occurrence, or -1 if not found.
+     * */
+    public int nextOccurrence(int fromIndex, int beginIndex, int endIndex) {
+        int candidate = next[fromIndex];
+        while (candidate != NO_NEXT && candidate < beginIndex) {
+            candidate = next[candidate];
+        }
+        while (candidate != NO_NEXT && candidate + k <= endIndex) {
+            if (isSameKmer(fromIndex, candidate)) {
+                return candidate;
+            }
+            candidate = next[candidate];
+        }
+        return -1;
+    }
+
+    private boolean isSameKmer(int first, int second) {
+        for (int i = 0; i < k; ++i) {
+            if (dnaSequence.getNucleotideByte(first + i) != dnaSequence.getNucleotideByte(second + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,47 @@
+package crispr;
+
+/**
+ * Searches the pattern by following its chain in the k-mer index.
+ * Patterns containing other characters than A, C, G, T are not indexed and are searched with Boyer-Moore.
+ * */
+public class KmerIndexSearcher implements PatternSearcher {
+    private final KmerIndex kmerIndex;
+    private final BoyerMooreSearcher fallbackSearcher;
+    private int patternIndex;
+    private int lastMatch;
+    private boolean isIndexed;
+
+    KmerIndexSearcher(DNASequence dnaSequence, KmerIndex kmerIndex) {
+        this.kmerIndex = kmerIndex;
+        this.fallbackSearcher = new BoyerMooreSearcher(dnaSequence, kmerIndex.getK());
+    }
+
+    @Override
+    public void setPattern(int beginIndex) {
+        patternIndex = beginIndex;
+        lastMatch = -1;
+        isIndexed = kmerIndex.isIndexed(beginIndex);
+        if (!isIndexed) {
+            fallbackSearcher.setPattern(beginIndex);
+        }
+    }
+
+    @Override
+    public int patternLength() {
+        return kmerIndex.getK();
+    }
+
+    @Override
+    public int search(int beginIndex, int endIndex) {
+        if (!isIndexed) {
+            return fallbackSearcher.search(beginIndex, endIndex);
+        }
+        // scanning to right searches after the last match, the chain is followed from there
+        int fromIndex = (lastMatch >= 0 && lastMatch < beginIndex) ? lastMatch : patternIndex;
+        int match = kmerIndex.nextOccurrence(fromIndex, beginIndex, endIndex);
+        if (match >= 0) {
+            lastMatch = match;
+        }
+        return match;
+    }
+}
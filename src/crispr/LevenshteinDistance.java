@@ -0,0 +1,146 @@
+package crispr;
+
+/**
+ * source: https://www.baeldung.com/java-levenshtein-distance#:~:text=What%20Is%20the%20Levenshtein%20Distance,to%20transform%20x%20into%20y.
+ * Bit-parallel version: H. Hyyro, "Explaining and extending the bit-parallel approximate string matching algorithm of Myers", 2001.
+ */
+public class LevenshteinDistance {
+    // bit-parallel distance keeps one column of the DP matrix in a long
+    private static final int MAX_BIT_PARALLEL_LENGTH = 64;
+
+    public static int getLevenshteinDistance(String s1, String s2) {
+        return getLevenshteinDistance(s1, s2, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Computes Levenshtein distance, stopping as soon as it is known to exceed maxDistance.
+     * @return the distance if it is not greater than maxDistance, otherwise some value greater than maxDistance.
+     * */
+    public static int getLevenshteinDistance(String s1, String s2, int maxDistance) {
+        // the pattern is the shorter string, the text is the longer one
+        String pattern = (s1.length() <= s2.length()) ? s1 : s2;
+        String text = (s1.length() <= s2.length()) ? s2 : s1;
+
+        if (text.length() - pattern.length() > maxDistance) {
+            return text.length() - pattern.length();
+        }
+        if (pattern.length() == 0) {
+            return text.length();
+        }
+        if (pattern.length() > MAX_BIT_PARALLEL_LENGTH) {
+            return getLevenshteinDistanceDP(s1, s2);
+        }
+        return getBitParallelDistance(pattern, text, maxDistance);
+    }
+
+    /**
+     * Myers' bit-vector algorithm for the global edit distance (Hyyro's formulation).
+     * Vertical deltas of a DP column are kept as bit vectors Pv (+1) and Mv (-1),
+     * score is the value in the last row.
+     * */
+    private static int getBitParallelDistance(String pattern, String text, int maxDistance) {
+        int m = pattern.length();
+        int n = text.length();
+
+        // match masks of the nucleotides, other characters are matched in getMatchMask
+        long peqA = 0, peqC = 0, peqG = 0, peqT = 0;
+        for (int i = 0; i < m; i++) {
+            switch (pattern.charAt(i)) {
+                case 'A': peqA |= 1L << i; break;
+                case 'C': peqC |= 1L << i; break;
+                case 'G': peqG |= 1L << i; break;
+                case 'T': peqT |= 1L << i; break;
+            }
+        }
+
+        long highBit = 1L << (m - 1);
+        long pv = (m == 64) ? -1L : (1L << m) - 1;
+        long mv = 0;
+        int score = m;
+
+        for (int j = 0; j < n; j++) {
+            char c = text.charAt(j);
+            long eq;
+            switch (c) {
+                case 'A': eq = peqA; break;
+                case 'C': eq = peqC; break;
+                case 'G': eq = peqG; break;
+                case 'T': eq = peqT; break;
+                default: eq = getMatchMask(pattern, c);
+            }
+
+            long xv = eq | mv;
+            long xh = (((eq & pv) + pv) ^ pv) | eq;
+            long ph = mv | ~(xh | pv);
+            long mh = pv & xh;
+
+            if ((ph & highBit) != 0) {
+                score++;
+            } else if ((mh & highBit) != 0) {
+                score--;
+            }
+
+            // the first row of the matrix grows by one in every column
+            ph = (ph << 1) | 1;
+            mh = mh << 1;
+            pv = mh | ~(xv | ph);
+            mv = ph & xv;
+
+            // every remaining text character can lower the score by one at most
+            if (score - (n - j - 1) > maxDistance) {
+                return score - (n - j - 1);
+            }
+        }
+        return score;
+    }
+
+    private static long getMatchMask(String pattern, char c) {
+        long mask = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            if (pattern.charAt(i) == c) {
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    private static int getLevenshteinDistanceDP(String s1, String s2) {
+        int a[][] = new int[s1.length() + 1][s2.length() + 1];
+
+        for (int i = 0; i <= s1.length(); i++) {
+            for (int j = 0; j <= s2.length(); j++) {
+                if (i == 0) {
+                    a[i][j] = j;
+                }
+                else if (j == 0) {
+                    a[i][j] = i;
+                }
+                else {
+                    a[i][j] = Minimum(a[i - 1][j - 1]
+                                    + costOfSubstitution(s1.charAt(i - 1), s2.charAt(j - 1)),
+                            a[i - 1][j] + 1,
+                            a[i][j - 1] + 1);
+                }
+            }
+        }
+
+        return a[s1.length()][s2.length()];
+    }
+
+
+    public static int costOfSubstitution(char a, char b) {
+        return a == b ? 0 : 1;
+    }
+    private static int Minimum (int x, int y, int z)
+    {
+        int min;
+        min = x;
+        if (y < min)
+            min = y;
+        if (z < min)
+            min = z;
+        return min;
+
+    }
+
+}
@@ -0,0 +1,182 @@
+package crispr;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Array of longs which is either a long[] on the heap or a list of off-heap segments, as IntArray.
+ * Packed sequences of long records go off-heap, so gigabases do not weigh on the heap and its collections,
+ * and a cached sequence is read straight from its mapped file.
+ * */
+public abstract class LongArray {
+    // longs per off-heap segment, 512 Mb of packed sequence
+    private static final int SEGMENT_BITS = 24;
+    private static final int SEGMENT_LENGTH = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_LENGTH - 1;
+    // arrays this long and longer are allocated off-heap
+    public static final int OFF_HEAP_THRESHOLD = SEGMENT_LENGTH;
+    // bytes written to a channel at once
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    public abstract long get(int index);
+
+    public abstract void set(int index, long value);
+
+    public abstract int length();
+
+    /**
+     * @return array of the given length with the elements of this one, zeros after them.
+     * Off-heap arrays keep their segments, nothing is copied.
+     * */
+    public abstract LongArray resize(int length);
+
+    /**
+     * @return a longer array with the elements of this one: heap arrays double, off-heap arrays gain a segment
+     * */
+    public LongArray grow() {
+        return resize((length() < OFF_HEAP_THRESHOLD) ? Math.max(1, 2 * length()) : length() + SEGMENT_LENGTH);
+    }
+
+    /**
+     * Writes the elements to the channel as little-endian longs.
+     * */
+    public void write(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < length(); ++i) {
+            if (!buffer.hasRemaining()) {
+                writeFully(channel, buffer);
+            }
+            buffer.putLong(get(i));
+        }
+        writeFully(channel, buffer);
+    }
+
+    /**
+     * @return a zero-filled array, off-heap if it is at least OFF_HEAP_THRESHOLD long
+     * */
+    public static LongArray allocate(int length) {
+        if (length < OFF_HEAP_THRESHOLD) {
+            return new Heap(new long[length]);
+        }
+        return new OffHeap(new LongBuffer[0], 0).resize(length);
+    }
+
+    /**
+     * Maps length little-endian longs of the file starting at byte position read-only.
+     * Arrays shorter than OFF_HEAP_THRESHOLD are copied to the heap, longer ones are views of the mapping,
+     * one mapping per segment, so they may take more than 2 GB.
+     * */
+    public static LongArray map(FileChannel channel, long position, int length) throws IOException {
+        if (length < OFF_HEAP_THRESHOLD) {
+            long[] values = new long[length];
+            channel.map(FileChannel.MapMode.READ_ONLY, position, (long) length * Long.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer().get(values);
+            return new Heap(values);
+        }
+        LongBuffer[] segments = new LongBuffer[(length + SEGMENT_LENGTH - 1) >>> SEGMENT_BITS];
+        for (int segment = 0; segment < segments.length; ++segment) {
+            int segmentLength = Math.min(SEGMENT_LENGTH, length - segment * SEGMENT_LENGTH);
+            segments[segment] = channel.map(FileChannel.MapMode.READ_ONLY,
+                            position + (long) segment * SEGMENT_LENGTH * Long.BYTES, (long) segmentLength * Long.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+        }
+        return new OffHeap(segments, length);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static class Heap extends LongArray {
+        private final long[] values;
+
+        Heap(long[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public long get(int index) {
+            return values[index];
+        }
+
+        @Override
+        public void set(int index, long value) {
+            values[index] = value;
+        }
+
+        @Override
+        public int length() {
+            return values.length;
+        }
+
+        @Override
+        public LongArray resize(int length) {
+            if (length < OFF_HEAP_THRESHOLD) {
+                return new Heap(Arrays.copyOf(values, length));
+            }
+            LongArray array = allocate(length);
+            for (int i = 0; i < values.length; ++i) {
+                array.set(i, values[i]);
+            }
+            return array;
+        }
+
+        @Override
+        public void write(FileChannel channel) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = 0; i < values.length; i += WRITE_BUFFER_SIZE / Long.BYTES) {
+                int length = Math.min(WRITE_BUFFER_SIZE / Long.BYTES, values.length - i);
+                buffer.asLongBuffer().put(values, i, length);
+                buffer.position(length * Long.BYTES);
+                writeFully(channel, buffer);
+            }
+        }
+    }
+
+    private static class OffHeap extends LongArray {
+        private final LongBuffer[] segments;
+        private final int length;
+
+        OffHeap(LongBuffer[] segments, int length) {
+            this.segments = segments;
+            this.length = length;
+        }
+
+        @Override
+        public long get(int index) {
+            return segments[index >>> SEGMENT_BITS].get(index & SEGMENT_MASK);
+        }
+
+        @Override
+        public void set(int index, long value) {
+            segments[index >>> SEGMENT_BITS].put(index & SEGMENT_MASK, value);
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        /**
+         * Segments past the new length are dropped, missing ones are allocated whole.
+         * Elements of the kept segments past the new length are not cleared.
+         * */
+        @Override
+        public LongArray resize(int length) {
+            LongBuffer[] resized = Arrays.copyOf(segments, (length + SEGMENT_LENGTH - 1) >>> SEGMENT_BITS);
+            for (int segment = segments.length; segment < resized.length; ++segment) {
+                resized[segment] = ByteBuffer.allocateDirect(SEGMENT_LENGTH * Long.BYTES)
+                        .order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+            }
+            return new OffHeap(resized, length);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package crispr;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * Bitmap of the low-complexity regions of a DNA sequence, one bit per nucleotide: runs of N and other characters
+ * than A, C, G and T, and regions scored low-complexity by the DUST triplet score.
+ * <p>
+ * A window of WINDOW_LENGTH nucleotides scores the sum of c * (c - 1) / 2 over the triplets in it, c being the
+ * number of times a triplet occurs, divided by the number of triplets minus one. Random sequence scores about 0.5,
+ * a tandem repeat of period p about 31 / p, and a CRISPR array, whose repeats are at least a spacer apart, about 1.
+ * Of a window scoring above the threshold only its core is masked, the run of its triplets with the highest score,
+ * and of the core only the triplets occurring more than once in it. The score of a tandem repeat grows with its
+ * length, so the core of a window over the end of a microsatellite or homopolymer is the part of the repeat in it,
+ * and the sequence flanking the repeat is not masked with it. A window whose triplets all occur more than once
+ * is masked whole.
+ * The window slides one nucleotide at a time and its score is updated as triplets enter and leave it,
+ * so the mask is built in one linear pass, besides the search for the cores of windows with unique triplets.
+ * <p>
+ * The mask is built in blocks on first use, each from the windows overlapping it, so a scan of a region builds
+ * only the blocks of the region, and scanning threads build their blocks in parallel.
+ * A block built by two threads at once is built the same twice, either result is kept.
+ * */
+public class LowComplexityMask {
+    public static final int WINDOW_LENGTH = 64;
+    // masks microsatellites, tandem repeats of periods up to 6 (period 6 scores about 4.75)
+    public static final double DEFAULT_THRESHOLD = 4;
+
+    private static final int NUM_TRIPLETS = 64;
+    private static final int TRIPLETS_PER_WINDOW = WINDOW_LENGTH - 2;
+    private static final int BLOCK_LENGTH = 1 << 16;
+
+    // 2-bit codes of A, C, G, T by byte value, -1 for other characters
+    private static final byte[] CODES = new byte[256];
+
+    static {
+        Arrays.fill(CODES, (byte) -1);
+        CODES['A'] = 0;
+        CODES['C'] = 1;
+        CODES['G'] = 2;
+        CODES['T'] = 3;
+    }
+
+    private final DNASequence dnaSequence;
+    // a window is masked if its sum of triplet pairs exceeds this
+    private final double maxPairs;
+    // bits of each block, null until the block is built
+    private final AtomicReferenceArray<long[]> blocks;
+
+    LowComplexityMask(DNASequence dnaSequence, double threshold) {
+        this.dnaSequence = dnaSequence;
+        this.maxPairs = threshold * (TRIPLETS_PER_WINDOW - 1);
+        this.blocks = new AtomicReferenceArray<>((dnaSequence.length() + BLOCK_LENGTH - 1) / BLOCK_LENGTH);
+    }
+
+    public boolean isMasked(int index) {
+        long[] bits = getBlock(index / BLOCK_LENGTH);
+        int offset = index % BLOCK_LENGTH;
+        return (bits[offset / Long.SIZE] & (1L << offset)) != 0;
+    }
+
+    /**
+     * @return true if every nucleotide of [beginIndex, endIndex) is masked
+     * */
+    public boolean isMasked(int beginIndex, int endIndex) {
+        for (int i = beginIndex; i < endIndex; ++i) {
+            if (!isMasked(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long[] getBlock(int block) {
+        long[] bits = blocks.get(block);
+        if (bits == null) {
+            bits = buildBlock(block);
+            blocks.set(block, bits);
+        }
+        return bits;
+    }
+
+    /**
+     * Scores the windows overlapping the block and masks their nucleotides in the block.
+     * */
+    private long[] buildBlock(int block) {
+        int blockBegin = block * BLOCK_LENGTH;
+        int blockEnd = min(blockBegin + BLOCK_LENGTH, dnaSequence.length());
+        long[] bits = new long[(blockEnd - blockBegin + Long.SIZE - 1) / Long.SIZE];
+
+        // nucleotides of the windows overlapping the block
+        int begin = max(0, blockBegin - (WINDOW_LENGTH - 1));
+        int end = min(dnaSequence.length(), blockEnd + WINDOW_LENGTH - 1);
+        byte[] nucleotides = new byte[end - begin];
+        dnaSequence.getNucleotideBytes(begin, nucleotides, 0, nucleotides.length);
+
+        int[] counts = new int[NUM_TRIPLETS];
+        // triplets of the window by start position modulo WINDOW_LENGTH, -1 for triplets with other characters
+        int[] window = new int[WINDOW_LENGTH];
+        long pairs = 0;
+        int triplet = 0;
+        // number of A, C, G and T in a row up to the current nucleotide, up to 3
+        int numValid = 0;
+        // counts of the triplets of the core of a window, and of the runs tried while it is searched
+        int[] coreCounts = new int[NUM_TRIPLETS];
+        int[] runCounts = new int[NUM_TRIPLETS];
+        // true if the previous window scored above the threshold and its triplets all occur more than once
+        boolean isRepeatedWhole = false;
+
+        for (int k = 0; k < nucleotides.length; ++k) {
+            int i = begin + k;
+            int code = CODES[nucleotides[k] & 0xFF];
+            if (code < 0) {
+                numValid = 0;
+                if (i >= blockBegin && i < blockEnd) {
+                    set(bits, i - blockBegin);
+                }
+            } else {
+                triplet = ((triplet << 2) | code) & (NUM_TRIPLETS - 1);
+                numValid = min(numValid + 1, 3);
+            }
+            if (k < 2) {
+                continue;
+            }
+
+            // the triplet starting at k - 2 enters the window, the one TRIPLETS_PER_WINDOW before it leaves
+            int tripletStart = k - 2;
+            int leaving = -1;
+            if (tripletStart >= TRIPLETS_PER_WINDOW) {
+                leaving = window[(tripletStart - TRIPLETS_PER_WINDOW) & (WINDOW_LENGTH - 1)];
+                if (leaving >= 0) {
+                    pairs -= --counts[leaving];
+                }
+            }
+            int entering = (numValid == 3) ? triplet : -1;
+            window[tripletStart & (WINDOW_LENGTH - 1)] = entering;
+            if (entering >= 0) {
+                pairs += counts[entering]++;
+            }
+
+            int firstTriplet = tripletStart - (TRIPLETS_PER_WINDOW - 1);
+            if (firstTriplet >= 0 && pairs > maxPairs) {
+                // only the counts of the entering and the leaving triplet change from the previous window
+                isRepeatedWhole = isRepeatedWhole
+                        ? entering >= 0 && counts[entering] > 1 && (leaving < 0 || counts[leaving] != 1)
+                        : isRepeatedWhole(window, counts, firstTriplet, tripletStart);
+                // the window is its own core if its triplets all repeat, as inside a microsatellite
+                long windowMask = isRepeatedWhole ? -1L
+                        : getCoreMask(window, counts, coreCounts, runCounts, pairs, firstTriplet, tripletStart);
+                set(bits, begin + firstTriplet - blockBegin, windowMask, blockEnd - blockBegin);
+            } else {
+                isRepeatedWhole = false;
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * @return true if every triplet of the window occurs more than once in it
+     * */
+    private static boolean isRepeatedWhole(int[] window, int[] counts, int firstTriplet, int lastTriplet) {
+        for (int t = firstTriplet; t <= lastTriplet; ++t) {
+            int triplet = window[t & (WINDOW_LENGTH - 1)];
+            if (triplet < 0 || counts[triplet] == 1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the nucleotides of the triplets occurring more than once in the core of a window scoring above
+     * the threshold.
+     * Runs of triplets are scored like windows, by their pairs divided by their number of triplets minus one.
+     * The core is found by dropping the prefix of the run which leaves the highest score, then the suffix, and so on
+     * while the score grows, so dropping a flank takes one step even if it holds a triplet of the repeat.
+     * @param window triplets by start position modulo WINDOW_LENGTH
+     * @param counts number of times each triplet occurs in the window
+     * @param coreCounts receives the counts of the triplets of the core
+     * @param runCounts counts of the triplets of the runs tried
+     * @param pairs sum of triplet pairs of the window
+     * @param firstTriplet number of the first triplet of the window, as counted in window
+     * @param lastTriplet number of the last triplet of the window
+     * @return bits of the nucleotides of the window, bit 0 for the first one
+     * */
+    private static long getCoreMask(int[] window, int[] counts, int[] coreCounts, int[] runCounts, long pairs,
+                                    int firstTriplet, int lastTriplet) {
+        System.arraycopy(counts, 0, coreCounts, 0, NUM_TRIPLETS);
+        int coreFirst = firstTriplet;
+        int coreLast = lastTriplet;
+        long corePairs = pairs;
+        // the prefix in even passes, the suffix in odd ones, until a pass drops nothing after the other side
+        for (int pass = 0; ; ++pass) {
+            int step = (pass % 2 == 0) ? 1 : -1;
+            int edge = (step > 0) ? coreFirst : coreLast;
+            int fixedEdge = (step > 0) ? coreLast : coreFirst;
+            System.arraycopy(coreCounts, 0, runCounts, 0, NUM_TRIPLETS);
+            long runPairs = corePairs;
+            int newEdge = edge;
+            for (int t = edge; ; t += step) {
+                // the run left by dropping t has numTriplets triplets, and scores at most numTriplets / 2
+                int numTriplets = abs(fixedEdge - t);
+                long coreLength = abs(fixedEdge - newEdge);
+                if (numTriplets < 2 || numTriplets * coreLength <= 2 * corePairs) {
+                    break;
+                }
+                int triplet = window[t & (WINDOW_LENGTH - 1)];
+                if (triplet >= 0) {
+                    runPairs -= --runCounts[triplet];
+                }
+                // runPairs / (numTriplets - 1) > corePairs / coreLength
+                if (runPairs * coreLength > corePairs * (numTriplets - 1)) {
+                    newEdge = t + step;
+                    corePairs = runPairs;
+                }
+            }
+            for (int t = edge; t != newEdge; t += step) {
+                int triplet = window[t & (WINDOW_LENGTH - 1)];
+                if (triplet >= 0) {
+                    --coreCounts[triplet];
+                }
+            }
+            if (step > 0) {
+                coreFirst = newEdge;
+            } else {
+                coreLast = newEdge;
+            }
+            if (newEdge == edge && pass > 0) {
+                break;
+            }
+        }
+
+        // a core may span a stretch between two repeats, like a CRISPR repeat between microsatellite spacers
+        long coreMask = 0;
+        for (int t = coreFirst; t <= coreLast; ++t) {
+            int triplet = window[t & (WINDOW_LENGTH - 1)];
+            if (triplet >= 0 && coreCounts[triplet] > 1) {
+                coreMask |= 7L << (t - firstTriplet);
+            }
+        }
+        return coreMask;
+    }
+
+    private static void set(long[] bits, int offset) {
+        bits[offset / Long.SIZE] |= 1L << offset;
+    }
+
+    /**
+     * Sets the bits of [offset, offset + Long.SIZE) which are set in mask, bit 0 of mask at offset,
+     * and fall in [0, length).
+     * */
+    private static void set(long[] bits, int offset, long mask, int length) {
+        if (offset < 0) {
+            mask = (offset > -Long.SIZE) ? mask >>> -offset : 0;
+            offset = 0;
+        }
+        if (length - offset < Long.SIZE) {
+            mask &= (length > offset) ? (1L << (length - offset)) - 1 : 0;
+        }
+        int word = offset / Long.SIZE;
+        int shift = offset % Long.SIZE;
+        if (mask != 0) {
+            bits[word] |= mask << shift;
+            if (shift != 0 && (mask >>> (Long.SIZE - shift)) != 0) {
+                bits[word + 1] |= mask >>> (Long.SIZE - shift);
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package crispr;
+
+/**
+ * Searches the pattern allowing up to maxMismatches substitutions, so degenerate repeats are found in one pass.
+ * This is a bit-parallel shift-add search: the last patternLength bases of the text are shifted into one long,
+ * 2 bits per base as the pattern is packed, and one xor and one bit count give the number of mismatches
+ * at each position, whatever the number of allowed mismatches.
+ * Characters other than A, C, G, T are always mismatches, in the pattern and in the text.
+ * */
+public class MismatchSearcher implements PatternSearcher {
+    public static final int MAX_PATTERN_LENGTH = 32;
+    // low bit of every 2-bit base
+    private static final long LOW_BITS = 0x5555555555555555L;
+
+    private final DNASequence dnaSequence;
+    private final int length;
+    private final int maxMismatches;
+    private final long mask;
+    private final long lowBitsMask;
+    private long patternBits;
+    // low bit set for bases of the pattern which are not A, C, G or T
+    private long patternOthers;
+
+    MismatchSearcher(DNASequence dnaSequence, int length, int maxMismatches) {
+        if (length > MAX_PATTERN_LENGTH) {
+            throw new IllegalArgumentException("Pattern length " + length + " exceeds " + MAX_PATTERN_LENGTH);
+        }
+        this.dnaSequence = dnaSequence;
+        this.length = length;
+        this.maxMismatches = maxMismatches;
+        this.mask = (length == MAX_PATTERN_LENGTH) ? -1L : (1L << (2 * length)) - 1;
+        this.lowBitsMask = LOW_BITS & mask;
+    }
+
+    private static int code(byte nucleotide) {
+        switch (nucleotide) {
+            case 'A': return 0;
+            case 'C': return 1;
+            case 'G': return 2;
+            case 'T': return 3;
+            default: return -1;
+        }
+    }
+
+    @Override
+    public void setPattern(int beginIndex) {
+        patternBits = 0;
+        patternOthers = 0;
+        for (int i = beginIndex; i < beginIndex + length; ++i) {
+            int code = code(dnaSequence.getNucleotideByte(i));
+            patternBits = (patternBits << 2) | (code & 3);
+            patternOthers = (patternOthers << 2) | (code < 0 ? 1 : 0);
+        }
+    }
+
+    @Override
+    public int patternLength() {
+        return length;
+    }
+
+    @Override
+    public int search(int beginIndex, int endIndex) {
+        long window = 0;
+        long windowOthers = 0;
+        int firstFullWindow = beginIndex + length - 1;
+        for (int i = beginIndex; i < endIndex; ++i) {
+            int code = code(dnaSequence.getNucleotideByte(i));
+            window = ((window << 2) | (code & 3)) & mask;
+            windowOthers = ((windowOthers << 2) | (code < 0 ? 1 : 0)) & lowBitsMask;
+            if (i >= firstFullWindow) {
+                long difference = window ^ patternBits;
+                long mismatches = ((difference | (difference >>> 1)) & lowBitsMask) | windowOthers | patternOthers;
+                if (Long.bitCount(mismatches) <= maxMismatches) {
+                    return i - length + 1;
+                }
+            }
+        }
+        return -1;
+    }
+}
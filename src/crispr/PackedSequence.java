@@ -0,0 +1,330 @@
+package crispr;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * Nucleotide sequence stored with 2 bits per base.
+ * A, C, G and T are packed 32 to a long. Other characters (N, IUPAC codes, ...) are kept as runs of
+ * equal characters on the side, and a bitmap with one bit per 64 bases marks the blocks containing them,
+ * so lookups outside such blocks never touch the run list.
+ * Indices are longs, records may be longer than 2^31 bases. Packed words of long records are kept off-heap
+ * (see LongArray), so are those of cached records, which are read from the mapped cache file.
+ * */
+public class PackedSequence {
+    private static final char[] NUCLEOTIDES = {'A', 'C', 'G', 'T'};
+    private static final int BASES_PER_WORD = 32;
+    private static final int BASES_PER_BLOCK = 64;
+    // length, number of packed words, of blocks with runs and of runs, as writeTo writes them
+    private static final int COUNTS_SIZE = Long.BYTES + 3 * Integer.BYTES;
+
+    // 2-bit codes of upper- and lower-case A, C, G, T by byte value, -1 for other characters
+    private static final byte[] CODES = new byte[256];
+
+    static {
+        Arrays.fill(CODES, (byte) -1);
+        for (int code = 0; code < NUCLEOTIDES.length; ++code) {
+            CODES[NUCLEOTIDES[code]] = (byte) code;
+            CODES[Character.toLowerCase(NUCLEOTIDES[code])] = (byte) code;
+        }
+    }
+
+    private LongArray packed;
+    private long length;
+
+    // runs of non-ACGT characters, sorted by start index
+    private long[] runStarts;
+    private long[] runEnds;
+    private char[] runCharacters;
+    private int numRuns;
+    private long[] blocksWithRuns;
+
+    PackedSequence() {
+        this(BASES_PER_WORD * 16);
+    }
+
+    /**
+     * @param capacity expected number of bases, the sequence grows past it if needed
+     * */
+    PackedSequence(int capacity) {
+        packed = LongArray.allocate(capacity / BASES_PER_WORD + 1);
+        runStarts = new long[16];
+        runEnds = new long[16];
+        runCharacters = new char[16];
+        blocksWithRuns = new long[1];
+    }
+
+    /**
+     * Appends a character, upper-cased.
+     * */
+    void append(char c) {
+        if (c < CODES.length && CODES[c] >= 0) {
+            appendCode(CODES[c]);
+        } else {
+            appendOther(Character.toUpperCase(c));
+        }
+    }
+
+    /**
+     * Appends a character given as a single byte (ASCII or Latin-1), upper-cased.
+     * */
+    void append(byte b) {
+        int code = CODES[b & 0xFF];
+        if (code >= 0) {
+            appendCode(code);
+        } else {
+            appendOther(Character.toUpperCase((char) (b & 0xFF)));
+        }
+    }
+
+    private void appendCode(int code) {
+        ensureCapacity();
+        int word = (int) (length / BASES_PER_WORD);
+        packed.set(word, packed.get(word) | (long) code << ((length % BASES_PER_WORD) * 2));
+        ++length;
+    }
+
+    private void appendOther(char c) {
+        ensureCapacity();
+        addToRun(c);
+        ++length;
+    }
+
+    private void ensureCapacity() {
+        if (length / BASES_PER_WORD >= packed.length()) {
+            packed = packed.grow();
+        }
+    }
+
+    /**
+     * Releases unused capacity. Should be called after the last append.
+     * */
+    void trim() {
+        packed = packed.resize(getNumWords());
+        runStarts = Arrays.copyOf(runStarts, numRuns);
+        runEnds = Arrays.copyOf(runEnds, numRuns);
+        runCharacters = Arrays.copyOf(runCharacters, numRuns);
+    }
+
+    private int getNumWords() {
+        return (int) ((length + BASES_PER_WORD - 1) / BASES_PER_WORD);
+    }
+
+    /**
+     * @return number of bytes writeTo writes, the sequence should be trimmed
+     * */
+    long getSerializedSize() {
+        return COUNTS_SIZE + (long) packed.length() * Long.BYTES + getTailSize(blocksWithRuns.length, numRuns);
+    }
+
+    /**
+     * Writes the sequence to the channel as it is kept in memory, so readFrom only copies arrays back
+     * or maps them in place. All values are little-endian, the packed words come first after the counts.
+     * */
+    void writeTo(FileChannel channel) throws IOException {
+        ByteBuffer counts = ByteBuffer.allocate(COUNTS_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        counts.putLong(length).putInt(packed.length()).putInt(blocksWithRuns.length).putInt(numRuns);
+        writeFully(channel, counts);
+        packed.write(channel);
+        ByteBuffer tail = ByteBuffer.allocate((int) getTailSize(blocksWithRuns.length, numRuns)).order(ByteOrder.LITTLE_ENDIAN);
+        tail.asLongBuffer().put(blocksWithRuns).put(runStarts, 0, numRuns).put(runEnds, 0, numRuns);
+        tail.position((blocksWithRuns.length + 2 * numRuns) * Long.BYTES);
+        tail.asCharBuffer().put(runCharacters, 0, numRuns);
+        tail.position(tail.capacity());
+        writeFully(channel, tail);
+    }
+
+    /**
+     * Reads a sequence written by writeTo from the position of the channel on, and leaves the position after it.
+     * Packed words of long sequences are mapped from the file in segments, not copied.
+     * @return the sequence, or null if the channel ends before it
+     * */
+    static PackedSequence readFrom(FileChannel channel) throws IOException {
+        ByteBuffer counts = ByteBuffer.allocate(COUNTS_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        if (!readFully(channel, counts)) {
+            return null;
+        }
+        PackedSequence sequence = new PackedSequence(0);
+        sequence.length = counts.getLong();
+        int numWords = counts.getInt();
+        int numBlocksWithRuns = counts.getInt();
+        sequence.numRuns = counts.getInt();
+        long wordsPosition = channel.position();
+        long tailSize = getTailSize(numBlocksWithRuns, sequence.numRuns);
+        if (numWords < 0 || numBlocksWithRuns < 0 || sequence.numRuns < 0 || tailSize > Integer.MAX_VALUE
+                || wordsPosition + (long) numWords * Long.BYTES + tailSize > channel.size()) {
+            return null;
+        }
+        sequence.packed = LongArray.map(channel, wordsPosition, numWords);
+        channel.position(wordsPosition + (long) numWords * Long.BYTES);
+        ByteBuffer tail = ByteBuffer.allocate((int) tailSize).order(ByteOrder.LITTLE_ENDIAN);
+        if (!readFully(channel, tail)) {
+            return null;
+        }
+        sequence.blocksWithRuns = new long[numBlocksWithRuns];
+        sequence.runStarts = new long[sequence.numRuns];
+        sequence.runEnds = new long[sequence.numRuns];
+        sequence.runCharacters = new char[sequence.numRuns];
+        tail.asLongBuffer().get(sequence.blocksWithRuns).get(sequence.runStarts).get(sequence.runEnds);
+        tail.position((numBlocksWithRuns + 2 * sequence.numRuns) * Long.BYTES);
+        tail.asCharBuffer().get(sequence.runCharacters);
+        return sequence;
+    }
+
+    /**
+     * @return bytes of the run bitmap and the runs, which writeTo writes after the packed words
+     * */
+    private static long getTailSize(int numBlocksWithRuns, int numRuns) {
+        return (long) (numBlocksWithRuns + 2L * numRuns) * Long.BYTES + (long) numRuns * Character.BYTES;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Fills the buffer from the channel and flips it.
+     * @return false if the channel ends first
+     * */
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+        }
+        buffer.flip();
+        return buffer.limit() == buffer.capacity();
+    }
+
+    private void addToRun(char c) {
+        if (numRuns > 0 && runEnds[numRuns - 1] == length && runCharacters[numRuns - 1] == c) {
+            ++runEnds[numRuns - 1];
+        } else {
+            if (numRuns == runStarts.length) {
+                int capacity = max(16, numRuns * 2);
+                runStarts = Arrays.copyOf(runStarts, capacity);
+                runEnds = Arrays.copyOf(runEnds, capacity);
+                runCharacters = Arrays.copyOf(runCharacters, capacity);
+            }
+            runStarts[numRuns] = length;
+            runEnds[numRuns] = length + 1;
+            runCharacters[numRuns] = c;
+            ++numRuns;
+        }
+
+        long block = length / BASES_PER_BLOCK;
+        if (block / 64 >= blocksWithRuns.length) {
+            blocksWithRuns = Arrays.copyOf(blocksWithRuns, (int) max(blocksWithRuns.length * 2L, block / 64 + 1));
+        }
+        blocksWithRuns[(int) (block / 64)] |= 1L << block;
+    }
+
+    private boolean isInBlockWithRuns(long index) {
+        long block = index / BASES_PER_BLOCK;
+        return block / 64 < blocksWithRuns.length && (blocksWithRuns[(int) (block / 64)] & (1L << block)) != 0;
+    }
+
+    /**
+     * @return index of the run containing the given index, or -1.
+     * */
+    private int findRun(long index) {
+        int low = 0, high = numRuns - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (runEnds[mid] <= index) {
+                low = mid + 1;
+            } else if (runStarts[mid] > index) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    public long length() {
+        return length;
+    }
+
+    /**
+     * @return 64-bit hash of the bases, equal for equal sequences
+     * */
+    public long contentHash() {
+        long hash = mix(length);
+        for (int word = 0; word < getNumWords(); ++word) {
+            hash = mix(hash ^ packed.get(word));
+        }
+        for (int run = 0; run < numRuns; ++run) {
+            hash = mix(hash ^ ((runStarts[run] << 32) | runEnds[run]));
+            hash = mix(hash ^ runCharacters[run]);
+        }
+        return hash;
+    }
+
+    private static long mix(long value) {
+        value *= 0x9E3779B97F4A7C15L;
+        return value ^ (value >>> 29);
+    }
+
+    public char charAt(long index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+        }
+        if (isInBlockWithRuns(index)) {
+            int run = findRun(index);
+            if (run >= 0) {
+                return runCharacters[run];
+            }
+        }
+        return NUCLEOTIDES[(int) (packed.get((int) (index / BASES_PER_WORD)) >>> ((index % BASES_PER_WORD) * 2)) & 3];
+    }
+
+    /**
+     * @return the character at the given index as a byte (its low 8 bits)
+     * */
+    public byte byteAt(long index) {
+        return (byte) charAt(index);
+    }
+
+    /**
+     * Copies the characters of [beginIndex, beginIndex + length) into destination as bytes.
+     * Blocks without runs are decoded straight from the packed words.
+     * */
+    void getBytes(long beginIndex, byte[] destination, int offset, int length) {
+        if (beginIndex < 0 || length < 0 || beginIndex + length > this.length) {
+            throw new IndexOutOfBoundsException("begin " + beginIndex + ", length " + length + ", sequence length " + this.length);
+        }
+        int i = 0;
+        while (i < length) {
+            long index = beginIndex + i;
+            int blockEnd = min(length, i + BASES_PER_BLOCK - (int) (index % BASES_PER_BLOCK));
+            if (isInBlockWithRuns(index)) {
+                for (; i < blockEnd; ++i) {
+                    destination[offset + i] = byteAt(beginIndex + i);
+                }
+            } else {
+                for (; i < blockEnd; ++i) {
+                    index = beginIndex + i;
+                    destination[offset + i] = (byte) NUCLEOTIDES[(int) (packed.get((int) (index / BASES_PER_WORD)) >>> ((index % BASES_PER_WORD) * 2)) & 3];
+                }
+            }
+        }
+    }
+
+    public String substring(long beginIndex, long endIndex) {
+        if (beginIndex < 0 || endIndex > length || beginIndex > endIndex) {
+            throw new IndexOutOfBoundsException("begin " + beginIndex + ", end " + endIndex + ", length " + length);
+        }
+        char[] result = new char[(int) (endIndex - beginIndex)];
+        for (long i = beginIndex; i < endIndex; ++i) {
+            result[(int) (i - beginIndex)] = charAt(i);
+        }
+        return new String(result);
+    }
+}
@@ -0,0 +1,316 @@
+package crispr;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * Scans one fasta file with a grid of repeat and spacer parameter sets, for tuning them to a clade.
+ * Search window repeats are searched once per record, in the widest ranges of the grid (see CRISPRSearchEngine.findSeeds),
+ * then every set scans only the seeded positions, extending and validating its own candidates.
+ * Sets are scanned in parallel on a fixed pool of threads, and find the same arrays as a scan with their parameters.
+ * Arrays of each set are written to its own output file, and a summary with per-set counts and timings to SUMMARY_FILE.
+ * */
+public class ParameterSweep {
+    public static final String SUMMARY_FILE = "sweep.tsv";
+    // names of the parameters in grid files, in the order of ParameterSet values
+    private static final String[] PARAMETER_NAMES = {"minNumRepeats", "minRepeatLength", "maxRepeatLength",
+            "minSpacerLength", "maxSpacerLength"};
+
+    private final BiFunction<DNASequence, ParameterSet, CRISPRSearchEngine> newSearchEngine;
+    private final Vector<ParameterSet> parameterSets;
+    private final CRISPRArrayWriter.Format outputFormat;
+    private final Path outputDirectory;
+    private final int numThreads;
+    // null if sequences are not cached
+    private SequenceCache sequenceCache;
+
+    /**
+     * Repeat and spacer parameters of one scan.
+     * */
+    public static class ParameterSet {
+        private final int[] values;
+
+        public ParameterSet(int minNumberRepeats, int minRepeatLength, int maxRepeatLength, int minSpacerLength,
+                            int maxSpacerLength) {
+            this(new int[]{minNumberRepeats, minRepeatLength, maxRepeatLength, minSpacerLength, maxSpacerLength});
+        }
+
+        private ParameterSet(int[] values) {
+            this.values = values;
+        }
+
+        public int getMinNumberRepeats() {
+            return values[0];
+        }
+
+        public int getMinRepeatLength() {
+            return values[1];
+        }
+
+        public int getMaxRepeatLength() {
+            return values[2];
+        }
+
+        public int getMinSpacerLength() {
+            return values[3];
+        }
+
+        public int getMaxSpacerLength() {
+            return values[4];
+        }
+
+        /**
+         * @return name of the set in output file names, e.g. n3_r19-38_s19-48
+         * */
+        public String getName() {
+            return "n" + getMinNumberRepeats() + "_r" + getMinRepeatLength() + "-" + getMaxRepeatLength()
+                    + "_s" + getMinSpacerLength() + "-" + getMaxSpacerLength();
+        }
+
+        /**
+         * @return the set with the widest repeat and spacer ranges of all sets
+         * */
+        static ParameterSet widest(Vector<ParameterSet> parameterSets) {
+            int[] values = parameterSets.get(0).values.clone();
+            for (ParameterSet parameterSet : parameterSets) {
+                values[0] = min(values[0], parameterSet.getMinNumberRepeats());
+                values[1] = min(values[1], parameterSet.getMinRepeatLength());
+                values[2] = max(values[2], parameterSet.getMaxRepeatLength());
+                values[3] = min(values[3], parameterSet.getMinSpacerLength());
+                values[4] = max(values[4], parameterSet.getMaxSpacerLength());
+            }
+            return new ParameterSet(values);
+        }
+    }
+
+    /**
+     * Result of scanning the file with one set.
+     * */
+    private static class SetResult {
+        ParameterSet parameterSet;
+        Path outputFile;
+        CRISPRArrayWriter writer;
+        int numCRISPRs;
+        long scanTimeNanos;
+    }
+
+    /**
+     * @param newSearchEngine creates the search engine for a sequence and a parameter set
+     * @param parameterSets sets to scan with, not empty
+     * @param outputFormat format of the per-set outputs
+     * @param outputDirectory directory receiving the per-set outputs and the summary
+     * @param numThreads number of sets scanned at the same time, and of threads searching the seeds
+     * */
+    public ParameterSweep(BiFunction<DNASequence, ParameterSet, CRISPRSearchEngine> newSearchEngine,
+                          Vector<ParameterSet> parameterSets, CRISPRArrayWriter.Format outputFormat,
+                          Path outputDirectory, int numThreads) {
+        this.newSearchEngine = newSearchEngine;
+        this.parameterSets = parameterSets;
+        this.outputFormat = outputFormat;
+        this.outputDirectory = outputDirectory;
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Makes the file load its sequences from the cache, or cache them when they are parsed.
+     * */
+    public void setSequenceCache(SequenceCache sequenceCache) {
+        this.sequenceCache = sequenceCache;
+    }
+
+    /**
+     * Reads the parameter sets of a grid file. Every line gives values of some of the parameters as name=values,
+     * separated by spaces, e.g. "minRepeatLength=19,23 maxSpacerLength=40:60:10". Values are a comma separated list
+     * of numbers and ranges from:to or from:to:step. A line gives the sets of all combinations of its values,
+     * parameters missing from it keep their values in defaults. Empty lines and lines starting with # are skipped,
+     * sets given twice are taken once.
+     * @throws IllegalArgumentException if a line is not correct
+     * */
+    public static Vector<ParameterSet> readGrid(Path gridFile, ParameterSet defaults) throws IOException {
+        Vector<ParameterSet> parameterSets = new Vector<>();
+        HashSet<String> names = new HashSet<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(gridFile)) {
+            ++lineNumber;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            // values of each parameter on the line, the default if it is missing
+            int[][] lineValues = new int[PARAMETER_NAMES.length][];
+            for (String field : line.split("\\s+")) {
+                int separator = field.indexOf('=');
+                int parameter = (separator > 0) ? Arrays.asList(PARAMETER_NAMES).indexOf(field.substring(0, separator)) : -1;
+                if (parameter < 0) {
+                    throw new IllegalArgumentException("Unknown parameter " + field + " on line " + lineNumber + " of " + gridFile);
+                }
+                try {
+                    lineValues[parameter] = parseValues(field.substring(separator + 1));
+                } catch (NumberFormatException ex) {
+                    throw new IllegalArgumentException("Incorrect values " + field + " on line " + lineNumber + " of " + gridFile);
+                }
+            }
+            for (int parameter = 0; parameter < PARAMETER_NAMES.length; ++parameter) {
+                if (lineValues[parameter] == null) {
+                    lineValues[parameter] = new int[]{defaults.values[parameter]};
+                }
+            }
+
+            // combinations counted in mixed radix, the last parameter changing fastest
+            int[] choice = new int[PARAMETER_NAMES.length];
+            while (true) {
+                int[] values = new int[PARAMETER_NAMES.length];
+                for (int parameter = 0; parameter < PARAMETER_NAMES.length; ++parameter) {
+                    values[parameter] = lineValues[parameter][choice[parameter]];
+                }
+                ParameterSet parameterSet = new ParameterSet(values);
+                if (names.add(parameterSet.getName())) {
+                    parameterSets.add(parameterSet);
+                }
+
+                int parameter = PARAMETER_NAMES.length - 1;
+                while (parameter >= 0 && ++choice[parameter] == lineValues[parameter].length) {
+                    choice[parameter--] = 0;
+                }
+                if (parameter < 0) {
+                    break;
+                }
+            }
+        }
+        return parameterSets;
+    }
+
+    /**
+     * Parses a comma separated list of numbers and ranges from:to or from:to:step.
+     * */
+    private static int[] parseValues(String text) {
+        Vector<Integer> values = new Vector<>();
+        for (String item : text.split(",")) {
+            String[] bounds = item.split(":");
+            if (bounds.length > 3) {
+                throw new NumberFormatException(item);
+            }
+            int from = Integer.parseInt(bounds[0]);
+            int to = (bounds.length > 1) ? Integer.parseInt(bounds[1]) : from;
+            int step = (bounds.length > 2) ? Integer.parseInt(bounds[2]) : 1;
+            if (step <= 0 || to < from) {
+                throw new NumberFormatException(item);
+            }
+            for (int value = from; value <= to; value += step) {
+                values.add(value);
+            }
+        }
+        return values.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Scans the records of the file with every set and writes the summary.
+     * */
+    public void run(Path inputFile) throws IOException, InterruptedException, ExecutionException {
+        Files.createDirectories(outputDirectory);
+        long startTime = System.nanoTime();
+        ParameterSet widest = ParameterSet.widest(parameterSets);
+        String baseName = BatchScanner.getBaseName(inputFile);
+
+        Vector<SetResult> results = new Vector<>();
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        long numNucleotides = 0;
+        long numSeeds = 0;
+        long seedingTimeNanos = 0;
+        try (FastaReader fastaReader = new FastaReader(inputFile.toString())) {
+            fastaReader.setCache(sequenceCache);
+            try {
+                for (ParameterSet parameterSet : parameterSets) {
+                    SetResult result = new SetResult();
+                    result.parameterSet = parameterSet;
+                    result.outputFile = outputDirectory.resolve(baseName + "_" + parameterSet.getName()
+                            + CRISPRArrayWriter.getFileExtension(outputFormat));
+                    result.writer = CRISPRArrayWriter.create(outputFormat, FileChannel.open(result.outputFile,
+                            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), false);
+                    results.add(result);
+                }
+
+                DNASequence dnaSequence = fastaReader.next();
+                if (dnaSequence == null) {
+                    System.out.println("Not a correct fasta file. Exiting.");
+                    return;
+                }
+                for (; dnaSequence != null; dnaSequence = fastaReader.next()) {
+                    numNucleotides += dnaSequence.totalLength();
+                    long seedingStartTime = System.nanoTime();
+                    ExactRepeatSeeds seeds = newSearchEngine.apply(dnaSequence, widest).findSeeds(numThreads);
+                    seedingTimeNanos += System.nanoTime() - seedingStartTime;
+                    // records scanned in windows are searched at every position
+                    numSeeds += (seeds != null) ? seeds.getNumSeeds() : 0;
+
+                    DNASequence record = dnaSequence;
+                    Vector<Future<?>> scans = new Vector<>();
+                    for (SetResult result : results) {
+                        scans.add(pool.submit(() -> scanRecord(record, seeds, result)));
+                    }
+                    for (Future<?> scan : scans) {
+                        scan.get();
+                    }
+                }
+            } finally {
+                for (SetResult result : results) {
+                    result.writer.close();
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        try (BufferedWriter summary = Files.newBufferedWriter(outputDirectory.resolve(SUMMARY_FILE))) {
+            summary.write(String.join("\t", PARAMETER_NAMES) + "\toutput\tcrisprs\tscan_seconds\n");
+            for (SetResult result : results) {
+                summary.write(formatSummaryLine(result));
+                System.out.printf("%s: %d CRISPR arrays in %.3f s.%n", result.parameterSet.getName(), result.numCRISPRs,
+                        result.scanTimeNanos / 1e9);
+            }
+        }
+        System.out.printf("Swept %d parameter sets over %.1f Mb in %.3f s, seeds found at %d positions in %.3f s."
+                        + " Summary is in %s.%n", parameterSets.size(), numNucleotides / 1e6, (System.nanoTime() - startTime) / 1e9,
+                numSeeds, seedingTimeNanos / 1e9, outputDirectory.resolve(SUMMARY_FILE));
+    }
+
+    /**
+     * Scans the seeded positions of the record with the set of the result and writes the arrays found.
+     * */
+    private void scanRecord(DNASequence dnaSequence, ExactRepeatSeeds seeds, SetResult result) {
+        long startTime = System.nanoTime();
+        CRISPRSearchEngine searchEngine = newSearchEngine.apply(dnaSequence, result.parameterSet);
+        searchEngine.setSeeds(seeds);
+        result.writer.beginSequence(dnaSequence);
+        searchEngine.findCRISPRs(crisprArray -> {
+            ++result.numCRISPRs;
+            result.writer.accept(crisprArray);
+        });
+        result.writer.endSequence();
+        result.scanTimeNanos += System.nanoTime() - startTime;
+    }
+
+    private static String formatSummaryLine(SetResult result) {
+        ParameterSet parameterSet = result.parameterSet;
+        return String.format(Locale.ROOT, "%d\t%d\t%d\t%d\t%d\t%s\t%d\t%.3f%n", parameterSet.getMinNumberRepeats(),
+                parameterSet.getMinRepeatLength(), parameterSet.getMaxRepeatLength(), parameterSet.getMinSpacerLength(),
+                parameterSet.getMaxSpacerLength(), result.outputFile, result.numCRISPRs, result.scanTimeNanos / 1e9);
+    }
+}
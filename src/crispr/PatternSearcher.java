@@ -0,0 +1,21 @@
+package crispr;
+
+/**
+ * Searches repeats of a search window pattern taken from the DNA sequence.
+ * Implementations keep per-pattern state, so each scanning thread uses its own searcher.
+ * */
+public interface PatternSearcher {
+    /**
+     * Sets the pattern to the search window starting at beginIndex.
+     * */
+    void setPattern(int beginIndex);
+
+    int patternLength();
+
+    /**
+     * Searches for the pattern in the sequence between given indices.
+     * @precondition beginIndex is greater than the index the pattern was set from
+     * @return index of the first occurrence in [beginIndex, endIndex), or -1 if not found.
+     * */
+    int search(int beginIndex, int endIndex);
+}
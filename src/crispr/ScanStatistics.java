@@ -0,0 +1,95 @@
+package crispr;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and timers of a run, collected when -stats is given.
+ * One object is shared by all scanning threads. Counters are LongAdders, so threads do not contend on them.
+ * Times are summed over threads, so with several threads they may add up to more than the wall time.
+ * Parallel scans count the work of all chunk scans, also of those whose results are dropped in stitching.
+ * */
+public class ScanStatistics {
+    final LongAdder bytesRead = new LongAdder();
+    final LongAdder positionsVisited = new LongAdder();
+    // positions skipped as low-complexity
+    final LongAdder positionsMasked = new LongAdder();
+    final LongAdder patternSearches = new LongAdder();
+    final LongAdder candidates = new LongAdder();
+    final LongAdder rejectedByRepeatCount = new LongAdder();
+    final LongAdder rejectedByRepeatLength = new LongAdder();
+    final LongAdder rejectedBySpacerSimilarity = new LongAdder();
+    final LongAdder rejectedBySpacerSize = new LongAdder();
+    final LongAdder levenshteinCalls = new LongAdder();
+    final LongAdder crisprArrays = new LongAdder();
+
+    final LongAdder readNanos = new LongAdder();
+    // time of the scan loop, without extension, validation and output
+    final LongAdder seedingNanos = new LongAdder();
+    final LongAdder extensionNanos = new LongAdder();
+    final LongAdder validationNanos = new LongAdder();
+    final LongAdder outputNanos = new LongAdder();
+
+    private final long startTime = System.nanoTime();
+
+    /**
+     * @return counters and times in seconds, in report order
+     * */
+    private Map<String, Object> snapshot() {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("bytes_read", bytesRead.sum());
+        values.put("window_positions", positionsVisited.sum());
+        values.put("masked_positions", positionsMasked.sum());
+        values.put("pattern_searches", patternSearches.sum());
+        values.put("candidates", candidates.sum());
+        values.put("rejected_repeat_count", rejectedByRepeatCount.sum());
+        values.put("rejected_repeat_length", rejectedByRepeatLength.sum());
+        values.put("rejected_spacer_similarity", rejectedBySpacerSimilarity.sum());
+        values.put("rejected_spacer_size", rejectedBySpacerSize.sum());
+        values.put("levenshtein_calls", levenshteinCalls.sum());
+        values.put("crispr_arrays", crisprArrays.sum());
+        values.put("read_seconds", readNanos.sum() / 1e9);
+        values.put("seeding_seconds", seedingNanos.sum() / 1e9);
+        values.put("extension_seconds", extensionNanos.sum() / 1e9);
+        values.put("validation_seconds", validationNanos.sum() / 1e9);
+        values.put("output_seconds", outputNanos.sum() / 1e9);
+        values.put("wall_seconds", (System.nanoTime() - startTime) / 1e9);
+        return values;
+    }
+
+    private static String format(Object value) {
+        return (value instanceof Double) ? String.format(Locale.ROOT, "%.6f", (Double) value) : value.toString();
+    }
+
+    /**
+     * Prints one line per counter to standard output.
+     * */
+    public void printSummary() {
+        System.out.println("Scan statistics:");
+        for (Map.Entry<String, Object> entry : snapshot().entrySet()) {
+            System.out.printf("  %-28s %s%n", entry.getKey(), format(entry.getValue()));
+        }
+    }
+
+    /**
+     * Writes the counters as a flat JSON object.
+     * */
+    public void writeJson(String file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(Paths.get(file), StandardCharsets.UTF_8)) {
+            writer.write("{\n");
+            String separator = "";
+            for (Map.Entry<String, Object> entry : snapshot().entrySet()) {
+                writer.write(separator + "  \"" + entry.getKey() + "\": " + format(entry.getValue()));
+                separator = ",\n";
+            }
+            writer.write("\n}\n");
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package crispr;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Vector;
+import java.util.stream.Stream;
+
+/**
+ * Directory caching the packed sequences of fasta files, so a file scanned again is not parsed again.
+ * <pre>
+ * &lt;content hash&gt;.seq    packed sequence of a record
+ * &lt;content hash&gt;.sa     suffix array index of a record (see SuffixArrayIndex), when the engine saves it here
+ * &lt;file key&gt;.records    records of a fasta file, the key is made of its path, size and modification time
+ * </pre>
+ * Sequence files are read and their arrays copied out in bulk, which takes milliseconds per megabase.
+ * Packed words of long records are not copied, they are read from the mapping, off the heap (see LongArray),
+ * which is made of segments, so records of any length are cached.
+ * The cache is kept under maxBytes by deleting the least recently used files first.
+ * Use is recorded in the modification time of files, which a hit updates.
+ * Files are written to a temporary file first, so other readers of the directory never see half of one.
+ * */
+public class SequenceCache {
+    public static final long DEFAULT_MAX_BYTES = 4L << 30;
+
+    private static final byte[] MAGIC = {'C', 'R', 'P', 'S'};
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = MAGIC.length + Integer.BYTES + Long.BYTES;
+    private static final String LISTING_HEADER = "# crispr sequence cache " + VERSION;
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final long maxBytes;
+
+    /**
+     * @param directory cache directory, created on first write
+     * @param maxBytes total size of the cache files evict keeps to
+     * */
+    public SequenceCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Loads all records of the fasta file from the cache.
+     * @return the records, or null if the file is not cached, has changed since, or some of its records were evicted
+     * */
+    public Vector<DNASequence> get(Path fastaFile) throws IOException {
+        String fileKey = getFileKey(fastaFile);
+        Path listingFile = directory.resolve(getListingFileName(fileKey));
+        if (!Files.isRegularFile(listingFile)) {
+            return null;
+        }
+        List<String> lines = Files.readAllLines(listingFile, StandardCharsets.UTF_8);
+        if (lines.size() < 3 || !lines.get(0).equals(LISTING_HEADER) || !lines.get(1).equals(fileKey)) {
+            return null;
+        }
+
+        Vector<DNASequence> records = new Vector<>();
+        Vector<Path> usedFiles = new Vector<>();
+        usedFiles.add(listingFile);
+        for (String line : lines.subList(2, lines.size())) {
+            int separator = line.indexOf('\t');
+            if (separator < 0) {
+                return null;
+            }
+            long contentHash = Long.parseUnsignedLong(line.substring(0, separator), 16);
+            Path sequenceFile = directory.resolve(getSequenceFileName(contentHash));
+            PackedSequence sequence = readSequence(sequenceFile, contentHash);
+            if (sequence == null) {
+                return null;
+            }
+            DNASequence dnaSequence = new DNASequence(line.substring(separator + 1), sequence);
+            records.add(dnaSequence);
+            usedFiles.add(sequenceFile);
+            usedFiles.add(directory.resolve(SuffixArrayIndex.getFileName(dnaSequence)));
+            usedFiles.add(directory.resolve(SuffixArrayIndex.getFileName(dnaSequence.reverseComplement())));
+        }
+
+        FileTime now = FileTime.fromMillis(System.currentTimeMillis());
+        for (Path file : usedFiles) {
+            try {
+                Files.setLastModifiedTime(file, now);
+            } catch (NoSuchFileException ex) {
+                // indices are cached only for some engines
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Caches the packed sequence of a record.
+     * */
+    public void putSequence(DNASequence dnaSequence, PackedSequence sequence) throws IOException {
+        long contentHash = dnaSequence.getContentHash();
+        Path sequenceFile = directory.resolve(getSequenceFileName(contentHash));
+        if (Files.isRegularFile(sequenceFile)) {
+            return;
+        }
+        Files.createDirectories(directory);
+        Path temporaryFile = Files.createTempFile(directory, sequenceFile.getFileName().toString(), TEMPORARY_SUFFIX);
+        try {
+            try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.put(MAGIC).putInt(VERSION).putLong(contentHash).flip();
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                sequence.writeTo(channel);
+            }
+            Files.move(temporaryFile, sequenceFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * Records which sequences the fasta file is made of, after all of them are cached with putSequence,
+     * and evicts old files if the cache has grown past its size.
+     * */
+    public void putListing(Path fastaFile, Vector<DNASequence> records) throws IOException {
+        String fileKey = getFileKey(fastaFile);
+        StringBuilder listing = new StringBuilder(LISTING_HEADER).append('\n').append(fileKey).append('\n');
+        for (DNASequence dnaSequence : records) {
+            listing.append(String.format("%016x", dnaSequence.getContentHash())).append('\t')
+                    .append(dnaSequence.getHeader()).append('\n');
+        }
+
+        Path listingFile = directory.resolve(getListingFileName(fileKey));
+        Files.createDirectories(directory);
+        Path temporaryFile = Files.createTempFile(directory, listingFile.getFileName().toString(), TEMPORARY_SUFFIX);
+        try {
+            Files.writeString(temporaryFile, listing, StandardCharsets.UTF_8);
+            Files.move(temporaryFile, listingFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+        evict();
+    }
+
+    /**
+     * Deletes the least recently used files until the cache takes at most maxBytes.
+     * Mapped files stay readable by scans using them until they are unmapped.
+     * */
+    public synchronized void evict() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        Vector<Path> files = new Vector<>();
+        Vector<BasicFileAttributes> attributes = new Vector<>();
+        long totalSize = 0;
+        try (Stream<Path> entries = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) entries::iterator) {
+                if (file.getFileName().toString().endsWith(TEMPORARY_SUFFIX)) {
+                    continue;
+                }
+                BasicFileAttributes fileAttributes;
+                try {
+                    fileAttributes = Files.readAttributes(file, BasicFileAttributes.class);
+                } catch (NoSuchFileException ex) {
+                    // evicted by another scan
+                    continue;
+                }
+                if (fileAttributes.isRegularFile()) {
+                    files.add(file);
+                    attributes.add(fileAttributes);
+                    totalSize += fileAttributes.size();
+                }
+            }
+        }
+        if (totalSize <= maxBytes) {
+            return;
+        }
+
+        Integer[] order = new Integer[files.size()];
+        for (int i = 0; i < order.length; ++i) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(i -> attributes.get(i).lastModifiedTime()));
+        for (int i = 0; i < order.length && totalSize > maxBytes; ++i) {
+            Files.deleteIfExists(files.get(order[i]));
+            totalSize -= attributes.get(order[i]).size();
+        }
+    }
+
+    private static PackedSequence readSequence(Path sequenceFile, long contentHash) throws IOException {
+        if (!Files.isRegularFile(sequenceFile)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(sequenceFile, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+            }
+            if (header.hasRemaining()) {
+                return null;
+            }
+            header.flip();
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            if (!Arrays.equals(magic, MAGIC) || header.getInt() != VERSION || header.getLong() != contentHash) {
+                return null;
+            }
+            // mappings stay valid after the channel is closed
+            PackedSequence sequence = PackedSequence.readFrom(channel);
+            return (sequence != null && channel.position() == channel.size()) ? sequence : null;
+        } catch (RuntimeException ex) {
+            // truncated or overwritten file
+            return null;
+        }
+    }
+
+    /**
+     * @return key telling a fasta file and its version apart: its real path, size and modification time
+     * */
+    private static String getFileKey(Path fastaFile) throws IOException {
+        Path realPath = fastaFile.toRealPath();
+        BasicFileAttributes attributes = Files.readAttributes(realPath, BasicFileAttributes.class);
+        return realPath + "\t" + attributes.size() + "\t" + attributes.lastModifiedTime().toMillis();
+    }
+
+    private static String getListingFileName(String fileKey) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < fileKey.length(); ++i) {
+            hash = (hash ^ fileKey.charAt(i)) * 0x100000001B3L;
+        }
+        return String.format("%016x.records", hash);
+    }
+
+    private static String getSequenceFileName(long contentHash) {
+        return String.format("%016x.seq", contentHash);
+    }
+}
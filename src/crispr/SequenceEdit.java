@@ -0,0 +1,40 @@
+package crispr;
+
+/**
+ * Edit of a sequence: nucleotides from beginIndex to endIndex of the previous version are replaced by
+ * replacementLength nucleotides. An insertion has beginIndex == endIndex, a deletion has replacementLength 0.
+ * */
+public class SequenceEdit {
+    private final int beginIndex;
+    private final int endIndex;
+    private final int replacementLength;
+
+    public SequenceEdit(int beginIndex, int endIndex, int replacementLength) {
+        if (beginIndex < 0 || endIndex < beginIndex || replacementLength < 0) {
+            throw new IllegalArgumentException("begin " + beginIndex + ", end " + endIndex
+                    + ", replacement length " + replacementLength);
+        }
+        this.beginIndex = beginIndex;
+        this.endIndex = endIndex;
+        this.replacementLength = replacementLength;
+    }
+
+    public int getBeginIndex() {
+        return beginIndex;
+    }
+
+    public int getEndIndex() {
+        return endIndex;
+    }
+
+    public int getReplacementLength() {
+        return replacementLength;
+    }
+
+    /**
+     * @return number of nucleotides the edit adds, negative if it removes some
+     * */
+    public int getLengthChange() {
+        return replacementLength - (endIndex - beginIndex);
+    }
+}
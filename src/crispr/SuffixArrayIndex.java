@@ -0,0 +1,385 @@
+package crispr;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Suffix array and LCP array of a DNA sequence.
+ * The suffix array is built by induced sorting (SA-IS) in linear time, the LCP array by Kasai's algorithm.
+ * Both have length + 1 elements, the first suffix being the empty one at index length.
+ * Long arrays are kept off-heap (see IntArray). The index does not depend on scan parameters,
+ * so it is saved to a file once and mapped back by later scans.
+ * */
+public class SuffixArrayIndex {
+    public static final int NO_NEXT = -1;
+
+    private static final byte[] MAGIC = {'C', 'R', 'S', 'A'};
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = MAGIC.length + Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+    private final int length;
+    private final long contentHash;
+    private final IntArray suffixArray;
+    private final IntArray lcpArray;
+
+    private SuffixArrayIndex(int length, long contentHash, IntArray suffixArray, IntArray lcpArray) {
+        this.length = length;
+        this.contentHash = contentHash;
+        this.suffixArray = suffixArray;
+        this.lcpArray = lcpArray;
+    }
+
+    /**
+     * The sequence as characters of the suffix array alphabet, followed by the sentinel 0.
+     * Characters are copied to one byte each, a packed sequence is too slow to read at random many times.
+     * A, C, G, T are 1 to 4, other characters follow in order of their byte value. Bases are upper case,
+     * so there are less than 251 other characters and every character fits in a byte.
+     * */
+    private static class SequenceText extends IntArray {
+        private final byte[] characters;
+        private final int alphabetSize;
+
+        SequenceText(DNASequence dnaSequence) {
+            int length = dnaSequence.length();
+            boolean[] isPresent = new boolean[256];
+            for (int i = 0; i < length; ++i) {
+                isPresent[dnaSequence.getNucleotideByte(i) & 0xFF] = true;
+            }
+            byte[] codes = new byte[256];
+            codes['A'] = 1;
+            codes['C'] = 2;
+            codes['G'] = 3;
+            codes['T'] = 4;
+            int numCharacters = 5;
+            for (int b = 0; b < codes.length; ++b) {
+                if (isPresent[b] && codes[b] == 0) {
+                    codes[b] = (byte) numCharacters++;
+                }
+            }
+            alphabetSize = numCharacters;
+
+            characters = new byte[length + 1];
+            for (int i = 0; i < length; ++i) {
+                characters[i] = codes[dnaSequence.getNucleotideByte(i) & 0xFF];
+            }
+        }
+
+        int getAlphabetSize() {
+            return alphabetSize;
+        }
+
+        @Override
+        public int get(int index) {
+            return characters[index] & 0xFF;
+        }
+
+        @Override
+        public void set(int index, int value) {
+            throw new UnsupportedOperationException("Sequence text is read-only");
+        }
+
+        @Override
+        public int length() {
+            return characters.length;
+        }
+    }
+
+    public static SuffixArrayIndex build(DNASequence dnaSequence) {
+        SequenceText text = new SequenceText(dnaSequence);
+        int n = text.length();
+        IntArray suffixArray = IntArray.allocate(n);
+        buildSuffixArray(text, suffixArray, n, text.getAlphabetSize());
+        IntArray lcpArray = buildLcpArray(text, suffixArray, n);
+        return new SuffixArrayIndex(dnaSequence.length(), dnaSequence.getContentHash(), suffixArray, lcpArray);
+    }
+
+    /**
+     * @return name of the index file of the sequence, made of its content hash
+     * */
+    public static String getFileName(DNASequence dnaSequence) {
+        return String.format("%016x.sa", dnaSequence.getContentHash());
+    }
+
+    /**
+     * Maps the index saved in the file.
+     * @return the index, or null if the file does not exist or is not the index of the given sequence
+     * */
+    public static SuffixArrayIndex load(Path file, DNASequence dnaSequence) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+            }
+            if (header.hasRemaining()) {
+                return null;
+            }
+            header.flip();
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            int version = header.getInt();
+            long contentHash = header.getLong();
+            int length = header.getInt();
+            long arrayBytes = (long) (length + 1) * Integer.BYTES;
+            if (!Arrays.equals(magic, MAGIC) || version != VERSION || contentHash != dnaSequence.getContentHash()
+                    || length != dnaSequence.length() || channel.size() != HEADER_SIZE + 2 * arrayBytes) {
+                return null;
+            }
+            // mappings stay valid after the channel is closed
+            IntArray suffixArray = IntArray.map(channel, HEADER_SIZE, length + 1);
+            IntArray lcpArray = IntArray.map(channel, HEADER_SIZE + arrayBytes, length + 1);
+            return new SuffixArrayIndex(length, contentHash, suffixArray, lcpArray);
+        }
+    }
+
+    /**
+     * Saves the index. It is written to a temporary file first, so a concurrent load never sees half of it.
+     * */
+    public void save(Path file) throws IOException {
+        Path temporaryFile = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporaryFile, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                header.put(MAGIC).putInt(VERSION).putLong(contentHash).putInt(length).flip();
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                suffixArray.write(channel);
+                lcpArray.write(channel);
+            }
+            Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporaryFile);
+        }
+    }
+
+    /**
+     * Links every position to the next position starting with the same k nucleotides.
+     * Suffixes sharing their first k characters are adjacent in the suffix array, in runs where the LCP is at least k,
+     * so each run is a group of exact repeats and consecutive positions of a group are repeat pairs.
+     * @return array of the next position of every position, or NO_NEXT
+     * */
+    public IntArray getNextOccurrences(int k) {
+        IntArray next = IntArray.allocate(length);
+
+        // 1. group of every position, the empty suffix at rank 0 is skipped
+        int group = -1;
+        for (int rank = 1; rank <= length; ++rank) {
+            if (lcpArray.get(rank) < k) {
+                ++group;
+            }
+            next.set(suffixArray.get(rank), group);
+        }
+
+        // 2. backward pass: replace groups by the next position in the same group
+        IntArray head = IntArray.allocate(group + 1);
+        head.fill(NO_NEXT);
+        for (int i = length - 1; i >= 0; --i) {
+            int positionGroup = next.get(i);
+            next.set(i, head.get(positionGroup));
+            head.set(positionGroup, i);
+        }
+        return next;
+    }
+
+    /**
+     * Kasai's algorithm: lcpArray[rank] is the length of the common prefix of the suffixes of rank - 1 and rank.
+     * */
+    private static IntArray buildLcpArray(IntArray text, IntArray suffixArray, int n) {
+        IntArray rank = IntArray.allocate(n);
+        for (int i = 0; i < n; ++i) {
+            rank.set(suffixArray.get(i), i);
+        }
+        IntArray lcpArray = IntArray.allocate(n);
+        int h = 0;
+        for (int i = 0; i < n; ++i) {
+            int r = rank.get(i);
+            if (r == 0) {
+                h = 0;
+                continue;
+            }
+            int j = suffixArray.get(r - 1);
+            // the sentinel is unique, so the comparison stops before the end of the text
+            while (text.get(i + h) == text.get(j + h)) {
+                ++h;
+            }
+            lcpArray.set(r, h);
+            if (h > 0) {
+                --h;
+            }
+        }
+        return lcpArray;
+    }
+
+    /**
+     * SA-IS (Nong, Zhang and Chan). The last character of text must be a unique smallest one.
+     * */
+    private static void buildSuffixArray(IntArray text, IntArray suffixArray, int n, int alphabetSize) {
+        if (n == 1) {
+            suffixArray.set(0, 0);
+            return;
+        }
+
+        // S-type suffixes are smaller than the next suffix, L-type ones are larger
+        long[] sTypes = new long[(n + 63) >>> 6];
+        setSType(sTypes, n - 1);
+        for (int i = n - 2; i >= 0; --i) {
+            int c = text.get(i);
+            int next = text.get(i + 1);
+            if (c < next || (c == next && isSType(sTypes, i + 1))) {
+                setSType(sTypes, i);
+            }
+        }
+        IntArray buckets = IntArray.allocate(alphabetSize);
+
+        // 1. sort LMS substrings: place LMS positions at the ends of their buckets and induce
+        getBuckets(text, buckets, n, alphabetSize, true);
+        suffixArray.fill(-1);
+        for (int i = 1; i < n; ++i) {
+            if (isLMS(sTypes, i)) {
+                putAtBucketEnd(text, buckets, suffixArray, i);
+            }
+        }
+        induceLTypes(text, suffixArray, buckets, sTypes, n, alphabetSize);
+        induceSTypes(text, suffixArray, buckets, sTypes, n, alphabetSize);
+
+        // compact the sorted LMS substrings into the first n1 elements
+        int n1 = 0;
+        for (int i = 0; i < n; ++i) {
+            if (isLMS(sTypes, suffixArray.get(i))) {
+                suffixArray.set(n1++, suffixArray.get(i));
+            }
+        }
+
+        // name the LMS substrings, equal substrings get equal names
+        for (int i = n1; i < n; ++i) {
+            suffixArray.set(i, -1);
+        }
+        int name = 0;
+        int previous = -1;
+        for (int i = 0; i < n1; ++i) {
+            int position = suffixArray.get(i);
+            boolean isDifferent = false;
+            for (int d = 0; d < n; ++d) {
+                if (previous == -1 || text.get(position + d) != text.get(previous + d)
+                        || isSType(sTypes, position + d) != isSType(sTypes, previous + d)) {
+                    isDifferent = true;
+                    break;
+                } else if (d > 0 && (isLMS(sTypes, position + d) || isLMS(sTypes, previous + d))) {
+                    break;
+                }
+            }
+            if (isDifferent) {
+                ++name;
+                previous = position;
+            }
+            // LMS positions are at least 2 apart, so position / 2 is unique
+            suffixArray.set(n1 + (position >>> 1), name - 1);
+        }
+        for (int i = n - 1, j = n - 1; i >= n1; --i) {
+            if (suffixArray.get(i) >= 0) {
+                suffixArray.set(j--, suffixArray.get(i));
+            }
+        }
+
+        // 2. sort the LMS suffixes: recurse on the names if they are not unique
+        IntArray reducedText = suffixArray.slice(n - n1, n1);
+        IntArray reducedSuffixArray = suffixArray.slice(0, n1);
+        if (name < n1) {
+            buildSuffixArray(reducedText, reducedSuffixArray, n1, name);
+        } else {
+            for (int i = 0; i < n1; ++i) {
+                reducedSuffixArray.set(reducedText.get(i), i);
+            }
+        }
+
+        // 3. induce the suffix array from the sorted LMS suffixes
+        getBuckets(text, buckets, n, alphabetSize, true);
+        for (int i = 1, j = 0; i < n; ++i) {
+            if (isLMS(sTypes, i)) {
+                reducedText.set(j++, i);
+            }
+        }
+        for (int i = 0; i < n1; ++i) {
+            reducedSuffixArray.set(i, reducedText.get(reducedSuffixArray.get(i)));
+        }
+        for (int i = n1; i < n; ++i) {
+            suffixArray.set(i, -1);
+        }
+        for (int i = n1 - 1; i >= 0; --i) {
+            int position = suffixArray.get(i);
+            suffixArray.set(i, -1);
+            putAtBucketEnd(text, buckets, suffixArray, position);
+        }
+        induceLTypes(text, suffixArray, buckets, sTypes, n, alphabetSize);
+        induceSTypes(text, suffixArray, buckets, sTypes, n, alphabetSize);
+    }
+
+    private static void putAtBucketEnd(IntArray text, IntArray buckets, IntArray suffixArray, int position) {
+        int c = text.get(position);
+        int bucketEnd = buckets.get(c) - 1;
+        buckets.set(c, bucketEnd);
+        suffixArray.set(bucketEnd, position);
+    }
+
+    private static void induceLTypes(IntArray text, IntArray suffixArray, IntArray buckets, long[] sTypes,
+                                     int n, int alphabetSize) {
+        getBuckets(text, buckets, n, alphabetSize, false);
+        for (int i = 0; i < n; ++i) {
+            int j = suffixArray.get(i) - 1;
+            if (j >= 0 && !isSType(sTypes, j)) {
+                int c = text.get(j);
+                int bucketStart = buckets.get(c);
+                buckets.set(c, bucketStart + 1);
+                suffixArray.set(bucketStart, j);
+            }
+        }
+    }
+
+    private static void induceSTypes(IntArray text, IntArray suffixArray, IntArray buckets, long[] sTypes,
+                                     int n, int alphabetSize) {
+        getBuckets(text, buckets, n, alphabetSize, true);
+        for (int i = n - 1; i >= 0; --i) {
+            int j = suffixArray.get(i) - 1;
+            if (j >= 0 && isSType(sTypes, j)) {
+                putAtBucketEnd(text, buckets, suffixArray, j);
+            }
+        }
+    }
+
+    /**
+     * Sets buckets to the start, or the end, of the bucket of every character in the suffix array.
+     * */
+    private static void getBuckets(IntArray text, IntArray buckets, int n, int alphabetSize, boolean isEnd) {
+        buckets.fill(0);
+        for (int i = 0; i < n; ++i) {
+            int c = text.get(i);
+            buckets.set(c, buckets.get(c) + 1);
+        }
+        int sum = 0;
+        for (int c = 0; c < alphabetSize; ++c) {
+            sum += buckets.get(c);
+            buckets.set(c, isEnd ? sum : sum - buckets.get(c));
+        }
+    }
+
+    private static boolean isSType(long[] sTypes, int i) {
+        return (sTypes[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private static void setSType(long[] sTypes, int i) {
+        sTypes[i >>> 6] |= 1L << i;
+    }
+
+    private static boolean isLMS(long[] sTypes, int i) {
+        return i > 0 && isSType(sTypes, i) && !isSType(sTypes, i - 1);
+    }
+}
@@ -0,0 +1,45 @@
+package crispr;
+
+/**
+ * Searches the pattern by following the links to next occurrences built from the suffix array.
+ * The links are exact, so matches need no verification, and patterns with other characters are linked too.
+ * */
+public class SuffixArraySearcher implements PatternSearcher {
+    private final IntArray nextOccurrences;
+    private final int length;
+    private int patternIndex;
+    private int lastMatch;
+
+    /**
+     * @param nextOccurrences links of SuffixArrayIndex.getNextOccurrences(length)
+     * */
+    SuffixArraySearcher(IntArray nextOccurrences, int length) {
+        this.nextOccurrences = nextOccurrences;
+        this.length = length;
+    }
+
+    @Override
+    public void setPattern(int beginIndex) {
+        patternIndex = beginIndex;
+        lastMatch = -1;
+    }
+
+    @Override
+    public int patternLength() {
+        return length;
+    }
+
+    @Override
+    public int search(int beginIndex, int endIndex) {
+        // scanning to right searches after the last match, the links are followed from there
+        int candidate = nextOccurrences.get((lastMatch >= 0 && lastMatch < beginIndex) ? lastMatch : patternIndex);
+        while (candidate != SuffixArrayIndex.NO_NEXT && candidate < beginIndex) {
+            candidate = nextOccurrences.get(candidate);
+        }
+        if (candidate != SuffixArrayIndex.NO_NEXT && candidate + length <= endIndex) {
+            lastMatch = candidate;
+            return candidate;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,40 @@
+package crispr;
+
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes CRISPR arrays in the human-readable text format of CRISPRArraysFinder.
+ * */
+class TextCRISPRArrayWriter extends CRISPRArrayWriter {
+
+    TextCRISPRArrayWriter(WritableByteChannel channel, int bufferSize, boolean flushEachArray) {
+        super(channel, bufferSize, flushEachArray);
+    }
+
+    @Override
+    protected void writeFileHeader() {
+    }
+
+    @Override
+    protected void writeSequenceHeader() {
+        put("ORGANISM: ");
+        put(dnaSequence.getHeader());
+        put((byte) '\n');
+    }
+
+    @Override
+    protected void writeCRISPRArray(CRISPRArray crisprArray) {
+        put("CRISPR ");
+        putDecimal(numCRISPRs);
+        put((byte) '\n');
+        put(crisprArray.toString());
+        put((byte) '\n');
+    }
+
+    @Override
+    protected void writeSequenceFooter() {
+        if (numCRISPRs == 0) {
+            put("No CRISPS arrays found.\n");
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package crispr;
+
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes one tab separated line per CRISPR array, after a line with column names.
+ * Coordinates are 1-based and inclusive, on the forward strand. Repeat starts are separated by commas.
+ * The repeat is read on the strand of the array.
+ * */
+class TsvCRISPRArrayWriter extends CRISPRArrayWriter {
+
+    TsvCRISPRArrayWriter(WritableByteChannel channel, int bufferSize, boolean flushEachArray) {
+        super(channel, bufferSize, flushEachArray);
+    }
+
+    @Override
+    protected void writeFileHeader() {
+        put("sequence\tcrispr\tstart\tend\tstrand\tnum_repeats\trepeat_length\taverage_spacer_length\trepeat\trepeat_starts\n");
+    }
+
+    @Override
+    protected void writeSequenceHeader() {
+    }
+
+    @Override
+    protected void writeCRISPRArray(CRISPRArray crisprArray) {
+        put(getSequenceId());
+        put((byte) '\t');
+        putDecimal(numCRISPRs);
+        put((byte) '\t');
+        putDecimal(crisprArray.getStartPosition() + 1);
+        put((byte) '\t');
+        putDecimal(crisprArray.getEndPosition());
+        put((byte) '\t');
+        put((crisprArray.getStrand() == CRISPRArray.Strand.FORWARD) ? (byte) '+' : (byte) '-');
+        put((byte) '\t');
+        putDecimal(crisprArray.getNumRepeats());
+        put((byte) '\t');
+        putDecimal(crisprArray.getRepeatLength());
+        put((byte) '\t');
+        putDecimal(crisprArray.getAverageSpacerLength());
+        put((byte) '\t');
+        putRepeat(crisprArray);
+        put((byte) '\t');
+        long sequenceOffset = crisprArray.getSequenceOffset();
+        for (int i = 0; i < crisprArray.getNumRepeats(); i++) {
+            if (i > 0) {
+                put((byte) ',');
+            }
+            putDecimal(sequenceOffset + crisprArray.getRepeatPosition(i) + 1);
+        }
+        put((byte) '\n');
+    }
+
+    @Override
+    protected void writeSequenceFooter() {
+    }
+}
@@ -0,0 +1,136 @@
+package crispr;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * Searches the pattern with Boyer-Moore algorithm, comparing the whole search window with the text in vector lanes
+ * instead of one character at a time. The rightmost mismatching lane gives the index the shift is computed from,
+ * so shifts and results are the same as BoyerMooreSearcher's.
+ * Nucleotides are decoded into a buffer in blocks, which the searches at consecutive scan positions share.
+ * Created by VectorKernels, only if the Vector API is available.
+ * */
+public class VectorBoyerMooreSearcher implements PatternSearcher {
+    private static final int BUFFER_LENGTH = 1 << 16;
+    // species are constants so that vector operations compile to instructions: search windows up to 8 long,
+    // the default, are compared in one 64-bit vector, longer ones in chunks of the widest vectors
+    private static final VectorSpecies<Byte> SHORT_SPECIES = ByteVector.SPECIES_64;
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    private final DNASequence dnaSequence;
+    private final BoyerMoore.Pattern pattern;
+    private final int length;
+    private final boolean isShort;
+    private final int numChunks;
+    // lanes of each chunk the pattern covers
+    private final VectorMask<Byte>[] chunkMasks;
+    // pattern followed by zeros up to a whole number of chunks
+    private final byte[] patternBytes;
+
+    // decoded nucleotides of [bufferBegin, bufferEnd), followed by room for loading a whole vector at any index
+    private byte[] buffer = new byte[0];
+    private int bufferBegin;
+    private int bufferEnd;
+
+    VectorBoyerMooreSearcher(DNASequence dnaSequence, int length) {
+        this.dnaSequence = dnaSequence;
+        this.pattern = new BoyerMoore.Pattern(length);
+        this.length = length;
+        this.isShort = length <= SHORT_SPECIES.length();
+
+        int numLanes = isShort ? SHORT_SPECIES.length() : SPECIES.length();
+        numChunks = (length + numLanes - 1) / numLanes;
+        @SuppressWarnings("unchecked")
+        VectorMask<Byte>[] masks = (VectorMask<Byte>[]) new VectorMask<?>[numChunks];
+        chunkMasks = masks;
+        for (int chunk = 0; chunk < numChunks; ++chunk) {
+            chunkMasks[chunk] = (isShort ? SHORT_SPECIES : SPECIES).indexInRange(chunk * numLanes, length);
+        }
+        patternBytes = new byte[numChunks * numLanes];
+    }
+
+    @Override
+    public void setPattern(int beginIndex) {
+        pattern.set(dnaSequence, beginIndex, length);
+        dnaSequence.getNucleotideBytes(beginIndex, patternBytes, 0, length);
+    }
+
+    @Override
+    public int patternLength() {
+        return length;
+    }
+
+    @Override
+    public int search(int beginIndex, int endIndex) {
+        if (endIndex - beginIndex < length) {
+            return -1;
+        }
+        decode(beginIndex, endIndex);
+        return isShort ? searchShort(beginIndex, endIndex) : searchInChunks(beginIndex, endIndex);
+    }
+
+    private int searchShort(int beginIndex, int endIndex) {
+        ByteVector patternVector = ByteVector.fromArray(SHORT_SPECIES, patternBytes, 0);
+        VectorMask<Byte> patternLanes = chunkMasks[0];
+        int s = beginIndex;
+        while (s <= endIndex - length) {
+            int textIndex = s - bufferBegin;
+            // index of the rightmost mismatch, -1 if the pattern matches
+            int j = ByteVector.fromArray(SHORT_SPECIES, buffer, textIndex)
+                    .compare(VectorOperators.NE, patternVector).and(patternLanes).lastTrue();
+            if (j < 0) {
+                return s;
+            }
+            int nextCharacter = (s + length < endIndex) ? buffer[textIndex + length] & 0xFF : -1;
+            s += pattern.getShift(j, nextCharacter);
+        }
+        return -1;
+    }
+
+    private int searchInChunks(int beginIndex, int endIndex) {
+        int numLanes = SPECIES.length();
+        int s = beginIndex;
+        while (s <= endIndex - length) {
+            int textIndex = s - bufferBegin;
+            // index of the rightmost mismatch, -1 if the pattern matches
+            int j = -1;
+            for (int chunk = numChunks - 1; chunk >= 0; --chunk) {
+                int lane = ByteVector.fromArray(SPECIES, buffer, textIndex + chunk * numLanes)
+                        .compare(VectorOperators.NE, ByteVector.fromArray(SPECIES, patternBytes, chunk * numLanes))
+                        .and(chunkMasks[chunk]).lastTrue();
+                if (lane >= 0) {
+                    j = chunk * numLanes + lane;
+                    break;
+                }
+            }
+            if (j < 0) {
+                return s;
+            }
+            int nextCharacter = (s + length < endIndex) ? buffer[textIndex + length] & 0xFF : -1;
+            s += pattern.getShift(j, nextCharacter);
+        }
+        return -1;
+    }
+
+    /**
+     * Makes the buffer hold [beginIndex, endIndex), decoding a block from beginIndex if it does not.
+     * */
+    private void decode(int beginIndex, int endIndex) {
+        if (beginIndex >= bufferBegin && endIndex <= bufferEnd) {
+            return;
+        }
+        int decodedLength = min(max(BUFFER_LENGTH, endIndex - beginIndex), dnaSequence.length() - beginIndex);
+        int capacity = decodedLength + patternBytes.length;
+        if (buffer.length < capacity) {
+            buffer = new byte[capacity];
+        }
+        dnaSequence.getNucleotideBytes(beginIndex, buffer, 0, decodedLength);
+        bufferBegin = beginIndex;
+        bufferEnd = beginIndex + decodedLength;
+    }
+}
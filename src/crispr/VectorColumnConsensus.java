@@ -0,0 +1,71 @@
+package crispr;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * ColumnConsensus counting nucleotides of all columns at once, one column per vector lane.
+ * The columns of a repeat are decoded in one row and compared with each nucleotide in one operation,
+ * so each repeat adds to the per-lane counts of A, C, G and T in a few instructions.
+ * Every repeat is counted, there is no early stop as in the scalar count.
+ * Created by VectorKernels, only if the Vector API is available.
+ * */
+public class VectorColumnConsensus extends ColumnConsensus {
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_64;
+    // counts are kept in byte lanes, arrays with more repeats are counted by the scalar code
+    private static final int MAX_REPEATS = Byte.MAX_VALUE - 1;
+
+    private final byte[] row = new byte[SPECIES.length()];
+    private final byte[] maxCounts = new byte[SPECIES.length()];
+    // number of A, C, G and T of each column, less than the number of repeats if there are other characters
+    private final byte[] totalCounts = new byte[SPECIES.length()];
+
+    VectorColumnConsensus(DNASequence dnaSequence, double similarityThreshold) {
+        super(dnaSequence, similarityThreshold);
+        assert SPECIES.length() >= MAX_COLUMNS;
+    }
+
+    @Override
+    public int countConservedColumns(CRISPRArray crisprArray, int firstOffset, int numColumns, int step) {
+        assert numColumns <= MAX_COLUMNS;
+
+        int numRepeats = crisprArray.getNumRepeats();
+        if (numRepeats > MAX_REPEATS) {
+            return super.countConservedColumns(crisprArray, firstOffset, numColumns, step);
+        }
+        int requiredCount = getRequiredCount(numRepeats);
+
+        // going to left, the row starts at the last column, whose lane is 0
+        int rowOffset = (step > 0) ? 0 : -(numColumns - 1);
+        ByteVector countsA = ByteVector.zero(SPECIES);
+        ByteVector countsC = ByteVector.zero(SPECIES);
+        ByteVector countsG = ByteVector.zero(SPECIES);
+        ByteVector countsT = ByteVector.zero(SPECIES);
+        for (int k = 0; k < numRepeats; k++) {
+            dnaSequence.getNucleotideBytes(crisprArray.getRepeatPosition(k) + firstOffset + rowOffset, row, 0, numColumns);
+            ByteVector nucleotides = ByteVector.fromArray(SPECIES, row, 0);
+            VectorMask<Byte> isA = nucleotides.eq((byte) 'A');
+            VectorMask<Byte> isC = nucleotides.eq((byte) 'C');
+            VectorMask<Byte> isG = nucleotides.eq((byte) 'G');
+            VectorMask<Byte> isT = nucleotides.eq((byte) 'T');
+            countsA = countsA.add((byte) 1, isA);
+            countsC = countsC.add((byte) 1, isC);
+            countsG = countsG.add((byte) 1, isG);
+            countsT = countsT.add((byte) 1, isT);
+        }
+        countsA.max(countsC).max(countsG.max(countsT)).intoArray(maxCounts, 0);
+        countsA.add(countsC).add(countsG).add(countsT).intoArray(totalCounts, 0);
+
+        for (int column = 0; column < numColumns; column++) {
+            int lane = (step > 0) ? column : numColumns - 1 - column;
+            boolean isConserved = (totalCounts[lane] < numRepeats)
+                    ? isConservedCountingAll(crisprArray, firstOffset + column * step, requiredCount)
+                    : maxCounts[lane] >= requiredCount;
+            if (!isConserved) {
+                return column;
+            }
+        }
+        return numColumns;
+    }
+}
@@ -0,0 +1,37 @@
+package crispr;
+
+/**
+ * Creates the SIMD kernels written with the Vector API, which is the incubator module jdk.incubator.vector in this JDK
+ * and is resolved only if java is run with --add-modules jdk.incubator.vector.
+ * Without the module the scalar kernels are created instead, and the vector classes are never loaded.
+ * Compiling the vector code takes the JIT a while, so the kernels pay off on long sequences, batches and servers
+ * rather than on one short scan.
+ * */
+public class VectorKernels {
+    private static final String MODULE_NAME = "jdk.incubator.vector";
+    private static final boolean IS_AVAILABLE = ModuleLayer.boot().findModule(MODULE_NAME).isPresent();
+
+    private VectorKernels() {
+    }
+
+    /**
+     * @return true if the Vector API module is resolved, so the vector kernels are used
+     * */
+    public static boolean isAvailable() {
+        return IS_AVAILABLE;
+    }
+
+    static PatternSearcher newBoyerMooreSearcher(DNASequence dnaSequence, int length) {
+        if (IS_AVAILABLE) {
+            return new VectorBoyerMooreSearcher(dnaSequence, length);
+        }
+        return new BoyerMooreSearcher(dnaSequence, length);
+    }
+
+    static ColumnConsensus newColumnConsensus(DNASequence dnaSequence, double similarityThreshold) {
+        if (IS_AVAILABLE) {
+            return new VectorColumnConsensus(dnaSequence, similarityThreshold);
+        }
+        return new ColumnConsensus(dnaSequence, similarityThreshold);
+    }
+}